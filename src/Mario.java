@@ -5,7 +5,9 @@ import agents.controllers.keyboard.CheaterKeyboardAgent;
 import engine.core.MarioSimulator;
 import options.LevelConfig;
 import tournament.Evaluate;
+import tournament.EvaluateShards;
 import tournament.EvaluationInfo;
+import tournament.run.MarioRunShard;
 
 public class Mario {
     static void usage() {
@@ -16,7 +18,9 @@ public class Mario {
         out.println("  -resultdir <path> : directory for results in CSV format");
         out.println("  -seed <num> : random seed");
         out.println("  -sim <count> : simulate a series of games without visualization");
+        out.println("  -threads <num> : number of games to simulate in parallel (default 1)");
         out.println("  -v : verbose");
+        out.println("  -workers <num> : simulate in separate worker processes, restarting crashed ones");
         System.exit(1);
     }
 
@@ -29,6 +33,9 @@ public class Mario {
         boolean seedSpecified = false;
         int sim = 0;
         boolean verbose = false;
+        int threads = 1;
+        int workers = 0;
+        boolean worker = false;
 
         for (int i = 0 ; i < args.length ; ++i) {
             String s = args[i];
@@ -51,6 +58,15 @@ public class Mario {
                 case "-sim":
                     sim = Integer.parseInt(args[++i]);;
                     break;
+                case "-threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-workers":
+                    workers = Integer.parseInt(args[++i]);
+                    break;
+                case "-worker":  // internal, see EvaluateShards
+                    worker = true;
+                    break;
                 case "-v":
                     verbose = true;
                     break;
@@ -68,8 +84,17 @@ public class Mario {
             }
             if (!seedSpecified)
                 seed = 0;
+            if (worker) {
+                MarioRunShard.runWorker(agentClass, LevelConfig.values()[fromLevel], seed, sim);
+                System.exit(0);
+            }
+            if (workers > 0) {
+                EvaluateShards.evaluateLevels(
+                    sim, seed, fromLevel, toLevel, agentClass, agentId, resultDir, verbose, workers);
+                System.exit(0);
+            }
             Evaluate.evaluateLevels(
-                sim, seed, fromLevel, toLevel, false, agentClass, agentId, resultDir, verbose);
+                sim, seed, fromLevel, toLevel, false, agentClass, agentId, resultDir, verbose, threads);
         } else {  // play one game visually
             if (toLevel > fromLevel) {
                 System.out.println("level range only works with -sim");
@@ -2,6 +2,7 @@ package agents;
 
 import engine.core.IEnvironment;
 import engine.core.MarioEntity;
+import options.AIOptions;
 
 public class AgentOptions {
 
@@ -12,6 +13,12 @@ public class AgentOptions {
 	public int marioEgoRow;
 	public int marioEgoCol;
 	
+	/**
+	 * Wall-clock milliseconds the agent may spend in one {@link IAgent#actionSelection()}, 0 = unlimited;
+	 * search agents pass it to {@link engine.core.RolloutPool#run(java.util.List, int)}.
+	 */
+	public int tickBudget;
+	
 	public AgentOptions() {
 	}
 	
@@ -22,6 +29,7 @@ public class AgentOptions {
 		this.receptiveFieldWidth = environment.getMario().receptiveFieldWidth;
 		this.marioEgoCol = environment.getMario().egoCol;
 		this.marioEgoRow = environment.getMario().egoRow;
+		this.tickBudget = AIOptions.getTickBudget();
 	}
 
 	public AgentOptions(int receptiveFieldWidth, int receptiveFieldHeight, int marioEgoRow, int marioEgoCol) {
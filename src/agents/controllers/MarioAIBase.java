@@ -55,7 +55,7 @@ abstract public class MarioAIBase extends MarioAgentBase implements KeyListener,
 	@Override
 	public void reset(AgentOptions options) {
 		super.reset(options);
-		lastInput.reset();
+		lastInput = new MarioInput(); // the last input may be immutable, see MarioInput.valueOf()
 		entities.reset(options);
 		tiles.reset(options);
 	}
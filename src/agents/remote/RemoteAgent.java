@@ -0,0 +1,109 @@
+package agents.remote;
+
+import java.nio.ByteBuffer;
+
+import agents.AgentOptions;
+import agents.IAgent;
+import engine.core.IEnvironment;
+import engine.helper.MarioLog;
+import engine.input.MarioInput;
+
+/**
+ * Agent whose decisions are made by another process (e.g. a Python / C++ controller) over {@link RemoteConnection}.
+ * <br/><br/>
+ * Every {@link #observe(IEnvironment)} sends a binary {@link RemoteProtocol#MSG_OBSERVATION} right away,
+ * {@link #actionSelection()} then blocks until the action answering the latest observation arrives.
+ * Many agents evaluated in parallel (see -threads) share one connection and keep it busy with their requests.
+ * <br/><br/>
+ * Run as any other agent, e.g.: java -Dmario.remote=localhost:4242 Mario agents.remote.RemoteAgent -sim 100 -threads 8
+ */
+public class RemoteAgent implements IAgent {
+
+	/** How long to wait for an action before giving up (ms). */
+	public static final long ACTION_TIMEOUT_MILLIS = 60000;
+
+	private final RemoteConnection connection;
+
+	private final int environment;
+
+	/** Reused for every outgoing frame; grown when there are many entities. */
+	private ByteBuffer frame = ByteBuffer.allocate(1024);
+
+	private int sequence = 0;
+
+	// guarded by 'this', written by the connection reader thread
+
+	private int answered = -1;
+
+	private int answerKeys;
+
+	public RemoteAgent() {
+		this(RemoteConnection.getShared());
+	}
+
+	public RemoteAgent(RemoteConnection connection) {
+		this.connection = connection;
+		this.environment = connection.register(this);
+	}
+
+	@Override
+	public String getName() {
+		return "RemoteAgent";
+	}
+
+	@Override
+	public void reset(AgentOptions options) {
+		RemoteProtocol.writeReset(frame, environment, options);
+		connection.send(frame);
+	}
+
+	@Override
+	public void observe(IEnvironment environment) {
+		int size = RemoteProtocol.observationSize(
+			environment.getMario().receptiveFieldWidth, environment.getMario().receptiveFieldHeight, environment.getFlatObservation().entityCount);
+		if (frame.capacity() < size) {
+			frame = ByteBuffer.allocate(Math.max(size, 2 * frame.capacity()));
+		}
+		RemoteProtocol.writeObservation(frame, this.environment, ++sequence, environment);
+		connection.send(frame);
+	}
+
+	@Override
+	public MarioInput actionSelection() {
+		int keys;
+		synchronized (this) {
+			long deadline = System.currentTimeMillis() + ACTION_TIMEOUT_MILLIS;
+			while (answered != sequence) {
+				connection.checkFailure();
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0) {
+					MarioLog.error("[RemoteAgent] no action for observation " + sequence + " within " + ACTION_TIMEOUT_MILLIS + "ms");
+					throw new RuntimeException("Agent process did not answer within " + ACTION_TIMEOUT_MILLIS + "ms.");
+				}
+				try {
+					wait(remaining);
+				} catch (InterruptedException e) {
+					throw new RuntimeException("Interrupted while waiting for an action.", e);
+				}
+			}
+			keys = answerKeys;
+		}
+		return RemoteProtocol.toInput(keys);
+	}
+
+	/**
+	 * Called by the connection reader thread; answers to older observations are only remembered until a newer one arrives.
+	 */
+	synchronized void answer(int sequence, int keys) {
+		if (sequence > answered) {
+			answered = sequence;
+			answerKeys = keys;
+			if (sequence == this.sequence) notifyAll();
+		}
+	}
+
+	synchronized void wakeUp() {
+		notifyAll();
+	}
+
+}
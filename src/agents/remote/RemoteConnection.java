@@ -0,0 +1,165 @@
+package agents.remote;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import engine.helper.MarioLog;
+
+/**
+ * Single socket to an agent process shared by any number of {@link RemoteAgent}s (typically one per evaluation thread).
+ * <br/><br/>
+ * Frames of all agents are written as soon as they are produced (see {@link RemoteProtocol}); a reader thread
+ * dispatches incoming actions to agents by their environment id, so requests of different agents are pipelined
+ * and the round trip latency is paid only once per tick of every agent, not once per agent in a row.
+ */
+public class RemoteConnection {
+
+	/** System property with "host:port" of the agent process used by {@link #getShared()}. */
+	public static final String ADDRESS_PROPERTY = "mario.remote";
+
+	public static final String DEFAULT_ADDRESS = "localhost:4242";
+
+	private static RemoteConnection shared;
+
+	private final Socket socket;
+	private final OutputStream output;
+	private final Thread reader;
+
+	private final AtomicInteger nextEnvironment = new AtomicInteger();
+	private final Map<Integer, AgentReference> agents = new ConcurrentHashMap<Integer, AgentReference>();
+	private final ReferenceQueue<RemoteAgent> collected = new ReferenceQueue<RemoteAgent>();
+
+	private volatile IOException failure;
+
+	public RemoteConnection(String host, int port) throws IOException {
+		socket = new Socket();
+		socket.setTcpNoDelay(true);
+		socket.connect(new InetSocketAddress(host, port));
+		output = socket.getOutputStream();
+		reader = new Thread(this::readLoop, "RemoteConnection-" + host + ":" + port);
+		reader.setDaemon(true);
+		reader.start();
+	}
+
+	/**
+	 * Connection to the address from {@link #ADDRESS_PROPERTY} system property ({@link #DEFAULT_ADDRESS} if not set),
+	 * opened on first use and shared by all agents in the JVM.
+	 */
+	public static synchronized RemoteConnection getShared() {
+		if (shared == null || shared.isClosed()) {
+			String address = System.getProperty(ADDRESS_PROPERTY, DEFAULT_ADDRESS);
+			int colon = address.lastIndexOf(':');
+			try {
+				shared = new RemoteConnection(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+			} catch (IOException | RuntimeException e) {
+				MarioLog.error("[RemoteConnection] failed to connect to agent process at '" + address + "': " + e.getMessage());
+				throw new RuntimeException("Failed to connect to agent process at '" + address + "'.", e);
+			}
+		}
+		return shared;
+	}
+
+	public boolean isClosed() {
+		return failure != null || socket.isClosed();
+	}
+
+	public void close() {
+		try {
+			socket.close();
+		} catch (IOException e) {
+		}
+	}
+
+	/**
+	 * Assigns a fresh environment id to 'agent'; the connection holds the agent weakly.
+	 */
+	int register(RemoteAgent agent) {
+		AgentReference stale;
+		while ((stale = (AgentReference) collected.poll()) != null) {
+			agents.remove(stale.environment);
+		}
+		int environment = nextEnvironment.getAndIncrement();
+		agents.put(environment, new AgentReference(agent, environment, collected));
+		return environment;
+	}
+
+	/**
+	 * Writes the whole 'frame' (from its position to its limit); 'frame' must be backed by an array.
+	 */
+	void send(ByteBuffer frame) {
+		checkFailure();
+		try {
+			synchronized (output) {
+				output.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+			}
+		} catch (IOException e) {
+			fail(e);
+			checkFailure();
+		}
+	}
+
+	void checkFailure() {
+		IOException e = failure;
+		if (e != null) {
+			throw new RuntimeException("Connection to agent process failed.", e);
+		}
+	}
+
+	private void readLoop() {
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+			while (true) {
+				int length = input.readInt();
+				byte type = input.readByte();
+				int environment = input.readInt();
+				if (type != RemoteProtocol.MSG_ACTION) {
+					MarioLog.warn("[RemoteConnection] unexpected message type " + type + ", skipping it.");
+					input.readFully(new byte[length - RemoteProtocol.HEADER_SIZE]);
+					continue;
+				}
+				int sequence = input.readInt();
+				int keys = input.readUnsignedByte();
+				AgentReference reference = agents.get(environment);
+				RemoteAgent agent = reference == null ? null : reference.get();
+				if (agent != null) agent.answer(sequence, keys);
+			}
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	private void fail(IOException e) {
+		if (failure == null) {
+			failure = e;
+			if (!socket.isClosed()) {
+				MarioLog.error("[RemoteConnection] connection to agent process lost: " + e.getMessage());
+			}
+		}
+		close();
+		for (AgentReference reference : agents.values()) {
+			RemoteAgent agent = reference.get();
+			if (agent != null) agent.wakeUp();
+		}
+	}
+
+	private static class AgentReference extends WeakReference<RemoteAgent> {
+
+		final int environment;
+
+		AgentReference(RemoteAgent agent, int environment, ReferenceQueue<RemoteAgent> queue) {
+			super(agent, queue);
+			this.environment = environment;
+		}
+
+	}
+
+}
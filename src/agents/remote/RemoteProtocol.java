@@ -0,0 +1,127 @@
+package agents.remote;
+
+import java.nio.ByteBuffer;
+
+import agents.AgentOptions;
+import engine.core.FlatObservation;
+import engine.core.IEnvironment;
+import engine.core.MarioEntity;
+import engine.core.Tile;
+import engine.input.MarioInput;
+import engine.input.MarioKey;
+
+/**
+ * Binary protocol spoken between {@link RemoteAgent} (client, the simulator) and an agent process (server).
+ * <br/><br/>
+ * Every message is a frame: <code>int length</code> (number of bytes that follow), <code>byte type</code>,
+ * <code>int environment</code> (id of the environment / agent instance, many of them share one connection),
+ * followed by the payload of the type. All numbers are big-endian.
+ * <ul>
+ * <li>{@link #MSG_RESET} (client -&gt; server): <code>byte receptiveFieldWidth, byte receptiveFieldHeight, byte egoRow, byte egoCol</code>;
+ *     a new episode starts in the environment</li>
+ * <li>{@link #MSG_OBSERVATION} (client -&gt; server): <code>int sequence</code>,
+ *     <code>byte status, byte mode, byte flags</code> ({@link #FLAG_ON_GROUND}, ...), <code>float x, y, speedX, speedY</code>,
+ *     receptiveFieldWidth * receptiveFieldHeight bytes of {@link Tile} ordinals in [row][col] manner,
+ *     <code>short count</code> and 'count' entities as <code>byte type</code> ({@link engine.core.EntityType} ordinal),
+ *     <code>float dX, dY, speedX, speedY</code> (position relative to Mario in pixels)</li>
+ * <li>{@link #MSG_ACTION} (server -&gt; client): <code>int sequence</code> of the observation it answers,
+ *     <code>byte keys</code>, bit 'k' pressing the {@link MarioKey} with code 'k'</li>
+ * </ul>
+ * The client does not wait for the answer before sending observations of other environments, so any number of
+ * requests can be in flight on one connection; answers may come in any order.
+ */
+public final class RemoteProtocol {
+
+	public static final byte MSG_RESET = 1;
+	public static final byte MSG_OBSERVATION = 2;
+	public static final byte MSG_ACTION = 3;
+
+	public static final int FLAG_ON_GROUND = 1;
+	public static final int FLAG_MAY_JUMP = 2;
+	public static final int FLAG_MAY_SHOOT = 4;
+	public static final int FLAG_CARRYING = 8;
+
+	/** Frame header after the length: type + environment. */
+	public static final int HEADER_SIZE = 1 + 4;
+
+	public static final int ENTITY_SIZE = 1 + 4 * 4;
+
+	private RemoteProtocol() {
+	}
+
+	public static int observationSize(int receptiveFieldWidth, int receptiveFieldHeight, int entities) {
+		return 4 + HEADER_SIZE + 4 + 3 + 4 * 4 + receptiveFieldWidth * receptiveFieldHeight + 2 + entities * ENTITY_SIZE;
+	}
+
+	public static void writeReset(ByteBuffer frame, int environment, AgentOptions options) {
+		frame.clear();
+		frame.putInt(HEADER_SIZE + 4);
+		frame.put(MSG_RESET);
+		frame.putInt(environment);
+		frame.put((byte) options.receptiveFieldWidth);
+		frame.put((byte) options.receptiveFieldHeight);
+		frame.put((byte) options.marioEgoRow);
+		frame.put((byte) options.marioEgoCol);
+		frame.flip();
+	}
+
+	/**
+	 * Encodes the current percepts of 'environment' into 'frame' (positioned for reading afterwards).
+	 * 'frame' must have at least {@link #observationSize(int, int, int)} bytes.
+	 */
+	public static void writeObservation(ByteBuffer frame, int environmentId, int sequence, IEnvironment environment) {
+		MarioEntity mario = environment.getMario();
+		FlatObservation observation = environment.getFlatObservation();
+		int count = Math.min(observation.entityCount, Short.MAX_VALUE);
+
+		frame.clear();
+		frame.putInt(observationSize(mario.receptiveFieldWidth, mario.receptiveFieldHeight, count) - 4);
+		frame.put(MSG_OBSERVATION);
+		frame.putInt(environmentId);
+		frame.putInt(sequence);
+
+		frame.put((byte) mario.status);
+		frame.put((byte) (mario.mode == null ? 0 : mario.mode.getCode()));
+		frame.put((byte) ((mario.onGround ? FLAG_ON_GROUND : 0) | (mario.mayJump ? FLAG_MAY_JUMP : 0)
+				| (mario.mayShoot ? FLAG_MAY_SHOOT : 0) | (mario.carrying ? FLAG_CARRYING : 0)));
+		frame.putFloat(mario.sprite == null ? 0 : mario.sprite.x);
+		frame.putFloat(mario.sprite == null ? 0 : mario.sprite.y);
+		frame.putFloat(mario.speed.x);
+		frame.putFloat(mario.speed.y);
+
+		frame.put(observation.tiles, 0, observation.width * observation.height);
+
+		frame.putShort((short) count);
+		for (int i = 0; i < count; ++i) {
+			int floats = i * FlatObservation.ENTITY_FLOATS;
+			frame.put((byte) observation.entityInts[i * FlatObservation.ENTITY_INTS]);
+			frame.putFloat(observation.entityFloats[floats]);
+			frame.putFloat(observation.entityFloats[floats + 1]);
+			frame.putFloat(observation.entityFloats[floats + 2]);
+			frame.putFloat(observation.entityFloats[floats + 3]);
+		}
+		frame.flip();
+	}
+
+	public static void writeAction(ByteBuffer frame, int environment, int sequence, int keys) {
+		frame.clear();
+		frame.putInt(HEADER_SIZE + 4 + 1);
+		frame.put(MSG_ACTION);
+		frame.putInt(environment);
+		frame.putInt(sequence);
+		frame.put((byte) keys);
+		frame.flip();
+	}
+
+	public static int toKeys(MarioInput input) {
+		return input.getMask();
+	}
+
+	/**
+	 * Interned input pressing exactly the keys of the bitmask; bits of unknown keys are ignored.
+	 */
+	public static MarioInput toInput(int keys) {
+		return MarioInput.valueOf(keys & (MarioInput.ACTION_COUNT - 1));
+	}
+
+}
@@ -0,0 +1,114 @@
+package agents.remote;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+import engine.input.MarioKey;
+
+/**
+ * Minimal agent process speaking {@link RemoteProtocol}, a template for implementing the server side in other languages
+ * and a way to measure the protocol overhead: it runs right and jumps whenever it can, like {@link agents.examples.ForwardAgent}
+ * without the obstacle checks.
+ * <br/><br/>
+ * Start it with "java agents.remote.RemoteStubServer [port]" and then run {@link RemoteAgent}.
+ */
+public class RemoteStubServer {
+
+	private final ServerSocket server;
+
+	public RemoteStubServer(int port) throws IOException {
+		server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+	}
+
+	public int getPort() {
+		return server.getLocalPort();
+	}
+
+	/**
+	 * Accepts connections in a background daemon thread, each connection is served by its own thread.
+	 */
+	public void start() {
+		Thread acceptor = new Thread(this::acceptLoop, "RemoteStubServer");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	public void close() {
+		try {
+			server.close();
+		} catch (IOException e) {
+		}
+	}
+
+	private void acceptLoop() {
+		while (!server.isClosed()) {
+			try {
+				Socket socket = server.accept();
+				socket.setTcpNoDelay(true);
+				Thread client = new Thread(() -> serve(socket), "RemoteStubServer-" + socket.getPort());
+				client.setDaemon(true);
+				client.start();
+			} catch (IOException e) {
+				if (!server.isClosed()) e.printStackTrace();
+			}
+		}
+	}
+
+	private void serve(Socket socket) {
+		ByteBuffer reply = ByteBuffer.allocate(RemoteProtocol.HEADER_SIZE + 4 + 1 + 4);
+		byte[] skip = new byte[1024];
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			 OutputStream output = new BufferedOutputStream(socket.getOutputStream())) {
+			while (true) {
+				int length = input.readInt();
+				byte type = input.readByte();
+				int environment = input.readInt();
+				int remaining = length - RemoteProtocol.HEADER_SIZE;
+				if (type == RemoteProtocol.MSG_OBSERVATION) {
+					int sequence = input.readInt();
+					input.readByte(); // status
+					input.readByte(); // mode
+					int flags = input.readUnsignedByte();
+					remaining -= 4 + 3;
+					RemoteProtocol.writeAction(reply, environment, sequence, act(flags));
+					output.write(reply.array(), 0, reply.limit());
+				}
+				while (remaining > 0) {
+					int n = Math.min(remaining, skip.length);
+					input.readFully(skip, 0, n);
+					remaining -= n;
+				}
+				// answers are batched until there is nothing more to read
+				if (input.available() == 0) output.flush();
+			}
+		} catch (EOFException e) {
+			// client disconnected
+		} catch (IOException e) {
+			if (!socket.isClosed()) e.printStackTrace();
+		}
+	}
+
+	static int act(int flags) {
+		int keys = (1 << MarioKey.RIGHT.getCode()) | (1 << MarioKey.SPEED.getCode());
+		if ((flags & RemoteProtocol.FLAG_MAY_JUMP) != 0 || (flags & RemoteProtocol.FLAG_ON_GROUND) == 0) {
+			keys |= 1 << MarioKey.JUMP.getCode();
+		}
+		return keys;
+	}
+
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 4242;
+		RemoteStubServer server = new RemoteStubServer(port);
+		System.out.println("RemoteStubServer listening on port " + server.getPort());
+		server.acceptLoop();
+	}
+
+}
@@ -0,0 +1,65 @@
+package agents.remote;
+
+import java.nio.ByteBuffer;
+
+import agents.AgentOptions;
+import agents.IAgent;
+import engine.core.IEnvironment;
+import engine.helper.MarioLog;
+import engine.input.MarioInput;
+
+/**
+ * Like {@link RemoteAgent}, but for an agent process on the same host: frames of {@link RemoteProtocol} are written
+ * straight into a {@link SharedMemoryChannel} lane of the simulation thread and the action is read back from it.
+ * <br/><br/>
+ * Run as any other agent, e.g.: java -Dmario.shm=/tmp/mario-agent.shm Mario agents.remote.SharedMemoryAgent -sim 100 -threads 8
+ */
+public class SharedMemoryAgent implements IAgent {
+
+	private final SharedMemoryChannel channel;
+
+	private SharedMemoryChannel.Lane lane;
+
+	private int sequence;
+
+	public SharedMemoryAgent() {
+		this(SharedMemoryChannel.getShared());
+	}
+
+	public SharedMemoryAgent(SharedMemoryChannel channel) {
+		this.channel = channel;
+	}
+
+	@Override
+	public String getName() {
+		return "SharedMemoryAgent";
+	}
+
+	@Override
+	public void reset(AgentOptions options) {
+		lane = channel.getLane(); // reset() runs on the simulation thread
+		ByteBuffer slot = lane.beginWrite(RemoteAgent.ACTION_TIMEOUT_MILLIS);
+		RemoteProtocol.writeReset(slot, lane.index, options);
+		lane.publish();
+	}
+
+	@Override
+	public void observe(IEnvironment environment) {
+		int size = RemoteProtocol.observationSize(
+			environment.getMario().receptiveFieldWidth, environment.getMario().receptiveFieldHeight, environment.getFlatObservation().entityCount);
+		if (size > channel.slotSize) {
+			MarioLog.error("[SharedMemoryAgent] observation of " + size + " bytes does not fit into slot of " + channel.slotSize + " bytes");
+			throw new RuntimeException("Observation does not fit into shared memory slot.");
+		}
+		sequence = lane.nextSequence();
+		ByteBuffer slot = lane.beginWrite(RemoteAgent.ACTION_TIMEOUT_MILLIS);
+		RemoteProtocol.writeObservation(slot, lane.index, sequence, environment);
+		lane.publish();
+	}
+
+	@Override
+	public MarioInput actionSelection() {
+		return RemoteProtocol.toInput(lane.awaitAction(sequence, RemoteAgent.ACTION_TIMEOUT_MILLIS));
+	}
+
+}
@@ -0,0 +1,284 @@
+package agents.remote;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import engine.helper.MarioLog;
+
+/**
+ * Memory-mapped file shared by the simulator and an agent process on the same host, an alternative to
+ * {@link RemoteConnection} without any system call on the observation -&gt; action path.
+ * <br/><br/>
+ * The file is created by the agent process ({@link #create(File, int, int, int)}) and opened by the simulator
+ * ({@link #open(File)}). It consists of a header and 'lanes' independent lanes, one per simulation thread:
+ * <ul>
+ * <li>header: <code>int magic, version, lanes, depth, slotSize</code></li>
+ * <li>lane control block ({@link #CONTROL_SIZE} bytes, counters on separate cache lines):
+ *     <code>int published</code> - frames written by the simulator,
+ *     <code>int consumed</code> - frames read by the agent process,
+ *     <code>int actionSequence, actionKeys</code> - latest answer (see {@link RemoteProtocol#MSG_ACTION})</li>
+ * <li>ring of 'depth' slots of 'slotSize' bytes, frame 'n' is in slot n % depth; frames are exactly
+ *     {@link RemoteProtocol} frames, environment id is the lane index</li>
+ * </ul>
+ * Counters are published with release and read with acquire semantics; waiting sides spin for a few microseconds
+ * (on multi-core machines) and then back off to yields and short parks, as the other side is a different process
+ * and cannot unpark them.
+ */
+public class SharedMemoryChannel {
+
+	public static final int MAGIC = 0x4d52534d; // "MRSM"
+
+	public static final int VERSION = 1;
+
+	/** System property with the path of the channel file used by {@link #getShared()}. */
+	public static final String PATH_PROPERTY = "mario.shm";
+
+	public static final int DEFAULT_LANES = 64;
+	public static final int DEFAULT_DEPTH = 4;
+	public static final int DEFAULT_SLOT_SIZE = 64 * 1024;
+
+	public static final int HEADER_SIZE = 64;
+	public static final int CONTROL_SIZE = 192;
+
+	private static final int PUBLISHED = 0;
+	private static final int CONSUMED = 64;
+	private static final int ACTION_SEQUENCE = 128;
+	private static final int ACTION_KEYS = 132;
+
+	/** How many times to spin on a counter before backing off; spinning is pointless when the other side cannot run meanwhile. */
+	static final int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 20000 : 0;
+
+	private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+	private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+	private static SharedMemoryChannel shared;
+
+	private final MappedByteBuffer buffer;
+
+	public final int lanes;
+	public final int depth;
+	public final int slotSize;
+
+	/** Lanes handed out by {@link #claimLane()} so far and the threads they belong to; guarded by 'claimed'. */
+	private final Lane[] claimed;
+	private final Thread[] owners;
+	private int claimedCount;
+
+	private final ThreadLocal<Lane> threadLane = ThreadLocal.withInitial(this::claimLane);
+
+	private SharedMemoryChannel(MappedByteBuffer buffer) {
+		this.buffer = buffer;
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			MarioLog.error("[SharedMemoryChannel] not a channel file or unsupported version " + buffer.getInt(4));
+			throw new RuntimeException("Not a shared memory channel of version " + VERSION + ".");
+		}
+		this.lanes = buffer.getInt(8);
+		this.depth = buffer.getInt(12);
+		this.slotSize = buffer.getInt(16);
+		this.claimed = new Lane[lanes];
+		this.owners = new Thread[lanes];
+	}
+
+	/**
+	 * Creates (or truncates) the channel file, called by the agent process.
+	 */
+	public static SharedMemoryChannel create(File file, int lanes, int depth, int slotSize) throws IOException {
+		long size = HEADER_SIZE + (long) lanes * (CONTROL_SIZE + (long) depth * slotSize);
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.setLength(0);
+			raf.setLength(size);
+			MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+			buffer.putInt(8, lanes);
+			buffer.putInt(12, depth);
+			buffer.putInt(16, slotSize);
+			buffer.putInt(4, VERSION);
+			INT.setRelease(buffer, 0, MAGIC);
+			return new SharedMemoryChannel(buffer);
+		}
+	}
+
+	/**
+	 * Maps an existing channel file, called by the simulator.
+	 */
+	public static SharedMemoryChannel open(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			return new SharedMemoryChannel(raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length()));
+		}
+	}
+
+	public static File getDefaultFile() {
+		return new File(System.getProperty("java.io.tmpdir"), "mario-agent.shm");
+	}
+
+	/**
+	 * Channel from {@link #PATH_PROPERTY} system property ({@link #getDefaultFile()} if not set),
+	 * opened on first use and shared by all agents in the JVM.
+	 */
+	public static synchronized SharedMemoryChannel getShared() {
+		if (shared == null) {
+			String path = System.getProperty(PATH_PROPERTY, getDefaultFile().getPath());
+			try {
+				shared = open(new File(path));
+			} catch (IOException | RuntimeException e) {
+				MarioLog.error("[SharedMemoryChannel] failed to open channel file '" + path + "': " + e.getMessage());
+				throw new RuntimeException("Failed to open shared memory channel '" + path + "'.", e);
+			}
+		}
+		return shared;
+	}
+
+	/**
+	 * Lane of the calling thread, episodes of one thread run one after another and share it.
+	 * Lanes of threads that ended are reused, so pools retiring and starting workers need only as many lanes as they have threads alive.
+	 */
+	public Lane getLane() {
+		return threadLane.get();
+	}
+
+	public Lane getLane(int index) {
+		return new Lane(index);
+	}
+
+	private Lane claimLane() {
+		Thread current = Thread.currentThread();
+		synchronized (claimed) {
+			for (int i = 0; i < claimedCount; ++i) {
+				if (!owners[i].isAlive()) {
+					// the same Lane object keeps its sequence, so stale answers of the previous owner never match
+					owners[i] = current;
+					return claimed[i];
+				}
+			}
+			if (claimedCount >= lanes) {
+				MarioLog.error("[SharedMemoryChannel] all " + lanes + " lanes are taken, run with fewer threads");
+				throw new RuntimeException("Shared memory channel has only " + lanes + " lanes.");
+			}
+			owners[claimedCount] = current;
+			claimed[claimedCount] = new Lane(claimedCount);
+			return claimed[claimedCount++];
+		}
+	}
+
+	static void backOff(int spins) {
+		if (spins < SPINS) Thread.onSpinWait();
+		else if (spins < SPINS + 100) Thread.yield();
+		else LockSupport.parkNanos(PARK_NANOS);
+	}
+
+	/**
+	 * One lane of the channel; every side of a lane must be driven by a single thread.
+	 * <br/><br/>
+	 * Control blocks persist in the file: when an agent process outlives a simulator (it serves another run, or a worker is restarted
+	 * against the same file), the new simulator continues the counters of the old one, and its observation sequences start
+	 * above every sequence used before, so leftover answers are never taken for new ones.
+	 */
+	public class Lane {
+
+		public final int index;
+
+		private final int control;
+		private final int ring;
+
+		/** Last observation sequence, simulator side. */
+		private int sequence;
+
+		private Lane(int index) {
+			this.index = index;
+			this.control = HEADER_SIZE + index * (CONTROL_SIZE + depth * slotSize);
+			this.ring = control + CONTROL_SIZE;
+			// the file may have served earlier simulators (a long-running agent process, restarted workers); each of their observations
+			// took a frame, so starting above the frames published so far never matches their answers, not even late ones
+			this.sequence = Math.max((int) INT.getAcquire(buffer, control + PUBLISHED), (int) INT.getAcquire(buffer, control + ACTION_SEQUENCE));
+		}
+
+		public int nextSequence() {
+			return ++sequence;
+		}
+
+		// SIMULATOR SIDE
+
+		/**
+		 * Waits for a free slot and returns it for writing, positioned at 0; pass it to {@link #publish()} when written.
+		 */
+		public ByteBuffer beginWrite(long timeoutMillis) {
+			int published = (int) INT.getOpaque(buffer, control + PUBLISHED);
+			long deadline = 0;
+			for (int spins = 0; published - (int) INT.getAcquire(buffer, control + CONSUMED) >= depth; ++spins) {
+				deadline = checkTimeout(deadline, timeoutMillis, spins, "a free slot");
+				backOff(spins);
+			}
+			return slot(published);
+		}
+
+		public void publish() {
+			int published = (int) INT.getOpaque(buffer, control + PUBLISHED);
+			INT.setRelease(buffer, control + PUBLISHED, published + 1);
+		}
+
+		/**
+		 * Waits for the answer to observation 'sequence' and returns its key bitmask.
+		 */
+		public int awaitAction(int sequence, long timeoutMillis) {
+			long deadline = 0;
+			for (int spins = 0; (int) INT.getAcquire(buffer, control + ACTION_SEQUENCE) != sequence; ++spins) {
+				deadline = checkTimeout(deadline, timeoutMillis, spins, "action " + sequence);
+				backOff(spins);
+			}
+			return (int) INT.get(buffer, control + ACTION_KEYS);
+		}
+
+		// AGENT PROCESS SIDE
+
+		/**
+		 * @return the next unread frame positioned at 0, or null if there is none
+		 */
+		public ByteBuffer poll() {
+			int consumed = (int) INT.getOpaque(buffer, control + CONSUMED);
+			if ((int) INT.getAcquire(buffer, control + PUBLISHED) == consumed) return null;
+			return slot(consumed);
+		}
+
+		/**
+		 * Releases the frame returned by {@link #poll()}.
+		 */
+		public void release() {
+			int consumed = (int) INT.getOpaque(buffer, control + CONSUMED);
+			INT.setRelease(buffer, control + CONSUMED, consumed + 1);
+		}
+
+		public void answer(int sequence, int keys) {
+			INT.set(buffer, control + ACTION_KEYS, keys);
+			INT.setRelease(buffer, control + ACTION_SEQUENCE, sequence);
+		}
+
+		private ByteBuffer slot(int frame) {
+			ByteBuffer slot = buffer.duplicate();
+			int offset = ring + Math.floorMod(frame, depth) * slotSize;
+			slot.limit(offset + slotSize).position(offset);
+			return slot.slice();
+		}
+
+		private long checkTimeout(long deadline, long timeoutMillis, int spins, String what) {
+			if (spins < SPINS) return deadline;
+			long now = System.currentTimeMillis();
+			if (deadline == 0) return now + timeoutMillis;
+			if (now > deadline) {
+				MarioLog.error("[SharedMemoryChannel] lane " + index + ": no " + what + " within " + timeoutMillis + "ms");
+				throw new RuntimeException("Agent process did not answer within " + timeoutMillis + "ms.");
+			}
+			return deadline;
+		}
+
+	}
+
+}
@@ -0,0 +1,76 @@
+package agents.remote;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Agent process side of {@link SharedMemoryChannel} with the policy of {@link RemoteStubServer}:
+ * a single thread polls all lanes and answers observations as they come.
+ * <br/><br/>
+ * Start it with "java agents.remote.SharedMemoryStubServer [file]" and then run {@link SharedMemoryAgent}.
+ */
+public class SharedMemoryStubServer {
+
+	private final SharedMemoryChannel channel;
+
+	private final SharedMemoryChannel.Lane[] lanes;
+
+	private volatile boolean closed = false;
+
+	public SharedMemoryStubServer(File file) throws IOException {
+		channel = SharedMemoryChannel.create(file, SharedMemoryChannel.DEFAULT_LANES, SharedMemoryChannel.DEFAULT_DEPTH, SharedMemoryChannel.DEFAULT_SLOT_SIZE);
+		lanes = new SharedMemoryChannel.Lane[channel.lanes];
+		for (int i = 0; i < lanes.length; ++i) {
+			lanes[i] = channel.getLane(i);
+		}
+	}
+
+	/**
+	 * Serves lanes in a background daemon thread.
+	 */
+	public void start() {
+		Thread server = new Thread(this::serve, "SharedMemoryStubServer");
+		server.setDaemon(true);
+		server.start();
+	}
+
+	public void close() {
+		closed = true;
+	}
+
+	private void serve() {
+		int idle = 0;
+		while (!closed) {
+			boolean served = false;
+			for (SharedMemoryChannel.Lane lane : lanes) {
+				ByteBuffer frame = lane.poll();
+				if (frame == null) continue;
+				served = true;
+				frame.getInt(); // length
+				byte type = frame.get();
+				frame.getInt(); // environment
+				if (type == RemoteProtocol.MSG_OBSERVATION) {
+					int sequence = frame.getInt();
+					frame.get(); // status
+					frame.get(); // mode
+					int flags = frame.get() & 0xff;
+					lane.release();
+					lane.answer(sequence, RemoteStubServer.act(flags));
+				} else {
+					lane.release();
+				}
+			}
+			if (served) idle = 0;
+			else SharedMemoryChannel.backOff(idle = Math.min(idle + 1, Integer.MAX_VALUE - 1));
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		File file = args.length > 0 ? new File(args[0]) : SharedMemoryChannel.getDefaultFile();
+		SharedMemoryStubServer server = new SharedMemoryStubServer(file);
+		System.out.println("SharedMemoryStubServer serving " + file.getPath());
+		server.serve();
+	}
+
+}
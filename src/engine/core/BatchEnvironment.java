@@ -0,0 +1,300 @@
+package engine.core;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import engine.helper.MarioLog;
+import engine.input.MarioInput;
+import engine.input.MarioKey;
+import engine.sprites.Sprite;
+import options.AIOptions;
+import options.FastOpts;
+import options.MarioOptions;
+import options.MarioOptions.IntOption;
+
+/**
+ * Steps N independent simulations in lockstep, meant for reinforcement-learning training.
+ * <br/><br/>
+ * Actions are integer ids in [0, {@link #ACTION_COUNT}): bit 'k' of the id presses the {@link MarioKey} with code 'k'.
+ * After every {@link #step(int[])} the public arrays hold, for every environment 'e':
+ * <ul>
+ * <li>{@link #tiles}, {@link #entities} - receptive field around Mario, {@link #getObservationSize()} cells per environment stored
+ *     at offset e * getObservationSize() in [row][col] manner; values are {@link Tile} / {@link EntityType} ordinals
+ *     (first entity within the cell, {@link EntityType#NOTHING} if there is none)</li>
+ * <li>{@link #distanceRewards} - how many pixels Mario moved to the right, {@link #scoreRewards} - score gained</li>
+ * <li>{@link #dones} - whether the episode finished in this step, its final Mario status is in {@link #episodeStatus}</li>
+ * </ul>
+ * Finished episodes are reset right away with a fresh seed (episode 'k' of environment 'e' uses seed + e + k * N),
+ * so the observation of a done environment is already the first observation of its next episode.
+ * <br/><br/>
+ * Environments are split among 'threads' (the calling thread included). Outside of level generation on reset,
+ * stepping allocates nothing: all arrays are preallocated and workers are signalled by parking/unparking.
+ * Results do not depend on the number of threads.
+ */
+public class BatchEnvironment {
+
+	/** Number of distinct actions, i.e., all combinations of {@link MarioKey#numberOfKeys} keys. */
+	public static final int ACTION_COUNT = MarioInput.ACTION_COUNT;
+
+	public final int size;
+
+	public final int receptiveFieldWidth;
+	public final int receptiveFieldHeight;
+	public final int egoRow;
+	public final int egoCol;
+
+	public final byte[] tiles;
+	public final byte[] entities;
+	public final float[] distanceRewards;
+	public final float[] scoreRewards;
+	public final boolean[] dones;
+	public final int[] episodeStatus;
+
+	private final int zLevelTiles;
+	private final int zLevelEntities;
+
+	private final int seed;
+	private final int[] episodes;
+
+	private final MarioOptions[] options;
+	private final LevelScene[] scenes;
+	private final TileWindow[] windows;
+	private final float[] lastX;
+	private final int[] lastScore;
+	private final int[] actions;
+
+	// WORKERS
+
+	private final Thread[] workers;
+	private final int[] sliceStart;
+	private final AtomicInteger pending = new AtomicInteger();
+	private volatile int generation = 0;
+	private volatile boolean closed = false;
+	private volatile Thread caller;
+	private volatile Throwable failure;
+
+	/**
+	 * @param size number of environments
+	 * @param threads number of threads stepping environments, the calling thread included
+	 * @param seed seed of the first episode of the first environment
+	 * @param options options of every environment (level random seed is overridden, visualization is turned off)
+	 */
+	public BatchEnvironment(int size, int threads, int seed, String... options) {
+		if (size <= 0) {
+			MarioLog.error("[BatchEnvironment] invalid size " + size);
+			throw new RuntimeException("Batch environment needs at least one environment, got " + size + ".");
+		}
+		this.size = size;
+		this.seed = seed;
+
+		String[] args = new String[options.length + 1];
+		System.arraycopy(options, 0, args, 0, options.length);
+		args[options.length] = FastOpts.VIS_OFF;
+
+		this.options = new MarioOptions[size];
+		this.scenes = new LevelScene[size];
+		for (int e = 0; e < size; ++e) {
+			this.options[e] = MarioOptions.create(args);
+			this.scenes[e] = new LevelScene();
+		}
+
+		MarioOptions previous = MarioOptions.bind(this.options[0]);
+		try {
+			receptiveFieldWidth = AIOptions.getReceptiveFieldWidth();
+			receptiveFieldHeight = AIOptions.getReceptiveFieldHeight();
+			egoCol = AIOptions.getMarioEgoCol() == 9 && receptiveFieldWidth != 19 ? receptiveFieldWidth / 2 : AIOptions.getMarioEgoCol();
+			egoRow = AIOptions.getMarioEgoRow() == 9 && receptiveFieldHeight != 19 ? receptiveFieldHeight / 2 : AIOptions.getMarioEgoRow();
+			zLevelTiles = AIOptions.getTileGeneralizationZLevel();
+			zLevelEntities = AIOptions.getEntityGeneralizationZLevel();
+		} finally {
+			MarioOptions.bind(previous);
+		}
+
+		tiles = new byte[size * getObservationSize()];
+		entities = new byte[size * getObservationSize()];
+		distanceRewards = new float[size];
+		scoreRewards = new float[size];
+		dones = new boolean[size];
+		episodeStatus = new int[size];
+		episodes = new int[size];
+		lastX = new float[size];
+		lastScore = new int[size];
+		actions = new int[size];
+		windows = new TileWindow[size];
+		for (int e = 0; e < size; ++e) {
+			windows[e] = new TileWindow(receptiveFieldWidth, receptiveFieldHeight);
+		}
+
+		threads = Math.max(1, Math.min(threads, size));
+		sliceStart = new int[threads + 1];
+		for (int t = 0; t <= threads; ++t) {
+			sliceStart[t] = t * size / threads;
+		}
+		workers = new Thread[threads - 1];
+		for (int w = 0; w < workers.length; ++w) {
+			final int slice = w + 1;
+			workers[w] = new Thread(() -> workerLoop(slice), "BatchEnvironment-" + slice);
+			workers[w].setDaemon(true);
+			workers[w].start();
+		}
+
+		reset();
+	}
+
+	public int getObservationSize() {
+		return receptiveFieldWidth * receptiveFieldHeight;
+	}
+
+	public LevelScene getLevelScene(int environment) {
+		return scenes[environment];
+	}
+
+	/**
+	 * Starts new episodes in all environments (seeds continue where previous episodes ended).
+	 */
+	public void reset() {
+		for (int e = 0; e < size; ++e) {
+			resetEnvironment(e);
+			observe(e);
+			distanceRewards[e] = 0;
+			scoreRewards[e] = 0;
+			dones[e] = false;
+		}
+	}
+
+	/**
+	 * Performs one tick in every environment.
+	 * @param actions action id per environment, see {@link #ACTION_COUNT}
+	 */
+	public void step(int[] actions) {
+		if (closed) {
+			throw new RuntimeException("Batch environment has been closed.");
+		}
+		if (actions.length != size) {
+			MarioLog.error("[BatchEnvironment] step(actions): expected " + size + " actions, got " + actions.length);
+			throw new RuntimeException("Expected " + size + " actions, got " + actions.length + ".");
+		}
+		for (int e = 0; e < size; ++e) {
+			if (actions[e] < 0 || actions[e] >= ACTION_COUNT) {
+				MarioLog.error("[BatchEnvironment] step(actions): invalid action " + actions[e] + " for environment " + e);
+				throw new RuntimeException("Invalid action " + actions[e] + " for environment " + e + ".");
+			}
+			this.actions[e] = actions[e];
+		}
+
+		if (workers.length > 0) {
+			caller = Thread.currentThread();
+			pending.set(workers.length);
+			++generation;
+			for (Thread worker : workers) LockSupport.unpark(worker);
+		}
+
+		stepSlice(0);
+
+		if (workers.length > 0) {
+			while (pending.get() != 0) {
+				LockSupport.park(this);
+			}
+			Throwable error = failure;
+			if (error != null) {
+				failure = null;
+				throw new RuntimeException("Batch environment worker failed.", error);
+			}
+		}
+	}
+
+	/**
+	 * Stops worker threads; the environment cannot be stepped afterwards.
+	 */
+	public void close() {
+		closed = true;
+		for (Thread worker : workers) LockSupport.unpark(worker);
+	}
+
+	private void workerLoop(int slice) {
+		int seen = 0;
+		while (true) {
+			int spins = 0;
+			while (generation == seen && !closed) {
+				if (++spins < 1000) Thread.onSpinWait();
+				else LockSupport.park(this);
+			}
+			if (closed) return;
+			seen = generation;
+			try {
+				stepSlice(slice);
+			} catch (Throwable e) {
+				failure = e;
+			}
+			if (pending.decrementAndGet() == 0) {
+				LockSupport.unpark(caller);
+			}
+		}
+	}
+
+	private void stepSlice(int slice) {
+		for (int e = sliceStart[slice]; e < sliceStart[slice + 1]; ++e) {
+			stepEnvironment(e);
+		}
+	}
+
+	private void stepEnvironment(int e) {
+		LevelScene scene = scenes[e];
+		scene.performAction(MarioInput.valueOf(actions[e]));
+		scene.tick();
+
+		distanceRewards[e] = scene.mario.x - lastX[e];
+		scoreRewards[e] = scene.getScore() - lastScore[e];
+		dones[e] = scene.isLevelFinished();
+		if (dones[e]) {
+			episodeStatus[e] = scene.getMarioStatus();
+			resetEnvironment(e);
+		}
+		observe(e);
+	}
+
+	private void resetEnvironment(int e) {
+		options[e].setInt(IntOption.LEVEL_RANDOM_SEED, seed + e + episodes[e] * size);
+		++episodes[e];
+		MarioOptions previous = MarioOptions.bind(options[e]);
+		try {
+			scenes[e].reset();
+		} finally {
+			MarioOptions.bind(previous);
+		}
+	}
+
+	private void observe(int e) {
+		LevelScene scene = scenes[e];
+		lastX[e] = scene.mario.x;
+		lastScore[e] = scene.getScore();
+
+		int offset = e * getObservationSize();
+		int marioX = scene.mario.mapX;
+		int marioY = scene.mario.mapY;
+		byte nothing = (byte) EntityType.NOTHING.ordinal();
+
+		windows[e].update(scene.level, marioX - egoCol, marioY - egoRow, zLevelTiles);
+		windows[e].copyTo(tiles, offset);
+		Arrays.fill(entities, offset, offset + getObservationSize(), nothing);
+
+		for (int i = 0; i < scene.sprites.size(); ++i) {
+			Sprite sprite = scene.sprites.get(i);
+			if (sprite.isDead() || sprite.kind == scene.mario.kind) continue;
+			int row = sprite.mapY - marioY + egoRow;
+			int col = sprite.mapX - marioX + egoCol;
+			if (sprite.mapX < 0 || sprite.mapY < 0 || row < 0 || row >= receptiveFieldHeight || col < 0 || col >= receptiveFieldWidth) continue;
+			int cell = offset + row * receptiveFieldWidth + col;
+			if (entities[cell] != nothing) continue;
+
+			EntityType entityType = EntityGeneralizer.generalize(sprite.kind, zLevelEntities);
+			if (entityType == EntityType.SHELL_STILL || entityType == EntityType.SHELL_MOVING) {
+				boolean moving = Math.abs(sprite.x - sprite.xOld) > 0.001 || Math.abs(sprite.y - sprite.yOld) > 0.001;
+				entityType = moving ? EntityType.SHELL_MOVING : EntityType.SHELL_STILL;
+			}
+			entities[cell] = (byte) entityType.ordinal();
+		}
+	}
+
+}
@@ -1,6 +1,6 @@
 package engine.core;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import agents.AgentOptions;
@@ -66,7 +66,7 @@ public class Entities {
 	 */
 	protected List<Entity> getAllAt(int mapX, int mapY) {
         if (mapY < 0 || mapY >= entityField.length || mapX < 0 || mapX >= entityField[0].length)
-            return new ArrayList<Entity>();
+            return Collections.emptyList();
 		return entityField[mapY][mapX];
 	}
 	
@@ -54,6 +54,14 @@ public class Entity {
 	public Sprite sprite;
 
 	public Entity(Sprite sprite, EntityType entityType, int dTX, int dTY, float dX, float dY, float height) {
+		this.speed = new Speed(0, 0);
+		set(sprite, entityType, dTX, dTY, dX, dY, height);
+	}
+
+	/**
+	 * Reinitializes the entity in place; used by {@link MarioEnvironment} to reuse entities between ticks.
+	 */
+	public void set(Sprite sprite, EntityType entityType, int dTX, int dTY, float dX, float dY, float height) {
 		this.sprite = sprite;
 		this.type = entityType;
 		this.dTX = dTX;
@@ -62,9 +70,11 @@ public class Entity {
 		this.dY = dY;
 		this.height = height;
 		if (sprite == null) {
-			this.speed = new Speed(0,0);
+			this.speed.x = 0;
+			this.speed.y = 0;
 		} else {
-			this.speed = new Speed(sprite.xa, sprite.ya);
+			this.speed.x = sprite.xa;
+			this.speed.y = sprite.ya;
 		}
 	}
 	
@@ -38,7 +38,38 @@ import engine.sprites.Sprite;
  */
 public class EntityGeneralizer {
 
+	public static final int Z_LEVELS = 3;
+
+	/** TABLE[zLevel][kind &amp; 0xff] is the generalized entity type, precomputed by {@link #interpret(byte, int)}. */
+	private static final EntityType[][] TABLE = new EntityType[Z_LEVELS][256];
+
+	/** Whether the kind is known to {@link #interpret(byte, int)}, unknown ones are reported when met. */
+	private static final boolean[][] KNOWN = new boolean[Z_LEVELS][256];
+
+	static {
+		for (int zLevel = 0; zLevel < Z_LEVELS; ++zLevel) {
+			for (int i = 0; i < 256; ++i) {
+				EntityType type = interpret((byte) i, zLevel);
+				KNOWN[zLevel][i] = type != null;
+				TABLE[zLevel][i] = type == null ? EntityType.SOMETHING : type;
+			}
+		}
+	}
+
 	public static EntityType generalize(byte el, int zLevel) {
+		if (zLevel < 0 || zLevel >= Z_LEVELS) {
+			throw new RuntimeException("Invalid ZLevel[" + zLevel + "], an entity cannot be interpreted. Have you correctly set up your zLevel for entities in your agent?");
+		}
+		if (!KNOWN[zLevel][el & 0xff]) {
+			MarioLog.error("EntityGeneralizer.generalize(el=" + el + ", zLevel=" + zLevel + "): Failed to interpret el = " + el + "! Returning SOMETHING!");
+		}
+		return TABLE[zLevel][el & 0xff];
+	}
+
+	/**
+	 * @return generalized entity type, null if 'el' is not a known sprite kind (it is generalized to {@link EntityType#SOMETHING} then)
+	 */
+	private static EntityType interpret(byte el, int zLevel) {
 		switch (zLevel) {
 		case (0):
 			switch (el) {
@@ -81,8 +112,7 @@ public class EntityGeneralizer {
 			case Sprite.KIND_PRINCESS:
 				return EntityType.PRINCESS;
 			}
-			MarioLog.error("EntityGeneralizer.generalize(el=" + el + ", zLevel=" + zLevel + "): Failed to interpret el = " + el + "! Returning SOMETHING!");
-			return EntityType.SOMETHING;
+			return null;
 		case (1):
 			switch (el) {
 			case Sprite.KIND_COIN_ANIM:
@@ -113,8 +143,7 @@ public class EntityGeneralizer {
 			case Sprite.KIND_PRINCESS:
 				return EntityType.PRINCESS;
 			}
-			MarioLog.error("EntityGeneralizer.generalize(el=" + el + ", zLevel=" + zLevel + "): Failed to interpret el = " + el + "! Returning SOMETHING!");
-			return EntityType.SOMETHING;
+			return null;
 		case (2):
 			switch (el) {
 			case (Sprite.KIND_COIN_ANIM):
@@ -142,10 +171,9 @@ public class EntityGeneralizer {
 				return EntityType.DANGER;
 			
 			}
-			MarioLog.error("EntityGeneralizer.generalize(el=" + el + ", zLevel=" + zLevel + "): Failed to interpret el = " + el + "! Returning SOMETHING!");
-			return EntityType.SOMETHING;
+			return null;
 		}
 		
-		throw new RuntimeException("Invalid ZLevel[" + zLevel + "], an entity cannot be interpreted. Have you correctly set up your zLevel for entities in your agent?");
+		return null;
 	}
 }
@@ -0,0 +1,73 @@
+package engine.core;
+
+import java.util.Arrays;
+
+import engine.sprites.Sprite;
+
+/**
+ * Receptive field around Mario in flat primitive arrays, see {@link IEnvironment#getFlatObservation()};
+ * for agents that feed observations to a network or a table and would otherwise re-encode
+ * {@link IEnvironment#getTileField()} and {@link IEnvironment#getEntities()} every tick.
+ * <br/><br/>
+ * All arrays are reused from tick to tick and reallocated only when they need to grow; copy what you need to keep.
+ */
+public class FlatObservation {
+
+	/** Ints per entity in {@link #entityInts}: {@link EntityType} ordinal, dTX, dTY (tiles relative to Mario). */
+	public static final int ENTITY_INTS = 3;
+
+	/** Floats per entity in {@link #entityFloats}: dX, dY (pixels relative to Mario), speed x, speed y (pixels per tick). */
+	public static final int ENTITY_FLOATS = 4;
+
+	/** Receptive field width (columns). */
+	public int width;
+
+	/** Receptive field height (rows). */
+	public int height;
+
+	/**
+	 * {@link Tile} ordinals in row-major order: tile at [row][col] is tiles[row * width + col].
+	 */
+	public byte[] tiles = new byte[0];
+
+	/**
+	 * Number of entities within the receptive field, in the order of {@link IEnvironment#getEntities()}.
+	 */
+	public int entityCount;
+
+	/**
+	 * Entity 'i' is at entityInts[i * ENTITY_INTS], see {@link #ENTITY_INTS}.
+	 */
+	public int[] entityInts = new int[16 * ENTITY_INTS];
+
+	/**
+	 * Entity 'i' is at entityFloats[i * ENTITY_FLOATS], see {@link #ENTITY_FLOATS}.
+	 */
+	public float[] entityFloats = new float[16 * ENTITY_FLOATS];
+
+	/**
+	 * Source sprite of entity 'i'.
+	 */
+	public Sprite[] entitySprites = new Sprite[16];
+
+	void resize(int width, int height) {
+		this.width = width;
+		this.height = height;
+		if (tiles.length != width * height) {
+			tiles = new byte[width * height];
+		}
+	}
+
+	/**
+	 * Makes room for 'count' entities.
+	 */
+	void ensureEntities(int count) {
+		if (entitySprites.length < count) {
+			int capacity = Math.max(count, 2 * entitySprites.length);
+			entityInts = Arrays.copyOf(entityInts, capacity * ENTITY_INTS);
+			entityFloats = Arrays.copyOf(entityFloats, capacity * ENTITY_FLOATS);
+			entitySprites = Arrays.copyOf(entitySprites, capacity);
+		}
+	}
+
+}
@@ -0,0 +1,178 @@
+package engine.core;
+
+import engine.helper.MarioLog;
+import engine.input.MarioInput;
+import engine.sprites.Mario;
+import engine.sprites.MarioMode;
+
+/**
+ * Headless forward simulation for search agents: {@link #simulate(LevelScene.Snapshot, MarioInput[])} restores a snapshot
+ * (see {@link LevelScene#snapshot()}) into a private scratch {@link LevelScene} and advances it by a sequence of actions.
+ * <br/><br/>
+ * Unlike {@link MarioEnvironment#tick()} it only ticks the scene: no receptive field, entities or {@link MarioEntity} are built,
+ * nothing is visualized or evaluated. It reports just what a search needs to score a node, see {@link Result}.
+ * <br/><br/>
+ * An instance is driven by a single thread, snapshots can be shared among threads. The first snapshot of a level forks it
+ * into the scratch scene, later snapshots of the same level are restored in place.
+ */
+public final class ForwardModel {
+
+	private final LevelScene scene = new LevelScene();
+
+	/** Whether {@link #scene} holds a state, i.e., something has been simulated. */
+	private boolean started;
+
+	/**
+	 * Restores 'snapshot' and performs 'actions', one per tick; stops early once Mario wins or dies.
+	 */
+	public Result simulate(LevelScene.Snapshot snapshot, MarioInput[] actions) {
+		return simulate(snapshot, actions, 0, actions.length);
+	}
+
+	/**
+	 * Restores 'snapshot' and performs 'count' actions from 'actions' starting at 'from', one per tick; stops early once Mario wins or dies.
+	 */
+	public Result simulate(LevelScene.Snapshot snapshot, MarioInput[] actions, int from, int count) {
+		scene.restore(snapshot);
+		started = true;
+		int score = scene.getScore();
+		int ticks = 0;
+		for (int i = from; i < from + count && !scene.isLevelFinished(); ++i) {
+			scene.performAction(actions[i]);
+			scene.tick();
+			++ticks;
+		}
+		return new Result(scene, ticks, scene.getScore() - score);
+	}
+
+	/**
+	 * Continues from the state the last simulation ended in, performing 'action' for 'ticks' ticks; stops early once Mario wins or dies.
+	 * Lets a search extend a rollout without restoring it again.
+	 */
+	public Result advance(MarioInput action, int ticks) {
+		checkStarted();
+		int score = scene.getScore();
+		int done = 0;
+		scene.performAction(action);
+		while (done < ticks && !scene.isLevelFinished()) {
+			scene.tick();
+			++done;
+		}
+		return new Result(scene, done, scene.getScore() - score);
+	}
+
+	/**
+	 * Snapshot of the state the last simulation ended in, e.g., to expand a search node from it.
+	 */
+	public LevelScene.Snapshot snapshot() {
+		checkStarted();
+		return scene.snapshot();
+	}
+
+	private void checkStarted() {
+		if (!started) {
+			MarioLog.error("ForwardModel: nothing has been simulated yet, call simulate() first.");
+			throw new RuntimeException("ForwardModel has no state, call simulate() first.");
+		}
+	}
+
+	/**
+	 * Outcome of a forward simulation: Mario's state at its end and score gained during it.
+	 */
+	public static final class Result {
+
+		private final float x;
+		private final float y;
+		private final float xa;
+		private final float ya;
+		private final int status;
+		private final MarioMode mode;
+		private final boolean onGround;
+		private final int ticks;
+		private final int tickCount;
+		private final int scoreDelta;
+		private final long stateHash;
+
+		private Result(LevelScene scene, int ticks, int scoreDelta) {
+			Mario mario = scene.mario;
+			x = mario.x;
+			y = mario.y;
+			xa = mario.xa;
+			ya = mario.ya;
+			status = mario.getStatus();
+			mode = mario.getMode();
+			onGround = mario.isOnGround();
+			this.ticks = ticks;
+			tickCount = scene.tickCount;
+			this.scoreDelta = scoreDelta;
+			stateHash = scene.getStateHash();
+		}
+
+		public float getX() {
+			return x;
+		}
+
+		public float getY() {
+			return y;
+		}
+
+		public float getXa() {
+			return xa;
+		}
+
+		public float getYa() {
+			return ya;
+		}
+
+		/**
+		 * One of {@link Mario#STATUS_RUNNING}, {@link Mario#STATUS_WIN}, {@link Mario#STATUS_DEAD}.
+		 */
+		public int getStatus() {
+			return status;
+		}
+
+		public boolean isRunning() {
+			return status == Mario.STATUS_RUNNING;
+		}
+
+		public MarioMode getMode() {
+			return mode;
+		}
+
+		public boolean isOnGround() {
+			return onGround;
+		}
+
+		/**
+		 * Number of ticks actually simulated, fewer than requested if the level finished.
+		 */
+		public int getTicks() {
+			return ticks;
+		}
+
+		/**
+		 * {@link LevelScene#tickCount} at the end of the simulation.
+		 */
+		public int getTickCount() {
+			return tickCount;
+		}
+
+		public int getScoreDelta() {
+			return scoreDelta;
+		}
+
+		/**
+		 * {@link LevelScene#getStateHash()} of the state the simulation ended in.
+		 */
+		public long getStateHash() {
+			return stateHash;
+		}
+
+		@Override
+		public String toString() {
+			return "Result[x=" + x + ", y=" + y + ", status=" + status + ", mode=" + mode + ", ticks=" + ticks + ", scoreDelta=" + scoreDelta + "]";
+		}
+
+	}
+
+}
@@ -86,8 +86,20 @@ public interface IEnvironment {
 
 	public List<Entity>[][] getEntityField();	
 
+	/**
+	 * Entities within the receptive field.
+	 * <br/><br/>
+	 * {@link Entity} instances are reused by the next {@link #tick()}; copy values you want to keep across ticks.
+	 */
 	public List<Entity> getEntities();
 
+	/**
+	 * The same observation as {@link #getTileField()} and {@link #getEntities()} in flat primitive arrays.
+	 * <br/><br/>
+	 * Observations are computed lazily: an agent reading only this one never pays for building the object views.
+	 */
+	public FlatObservation getFlatObservation();
+
 	boolean isLevelFinished();
 
 	EvaluationInfo getEvaluationInfo();
@@ -29,17 +29,17 @@ package engine.core;
 
 import java.awt.Point;
 import java.io.DataInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
 
+import engine.helper.FastRandom;
 import engine.helper.MarioLog;
 import engine.input.MarioInput;
 import engine.level.Level;
-import engine.level.LevelGenerator;
+import engine.level.LevelCache;
+import engine.level.LevelFormat;
 import engine.level.SpriteTemplate;
 import engine.sprites.BulletBill;
 import engine.sprites.CoinAnim;
@@ -54,6 +54,7 @@ import engine.sprites.Shell;
 import engine.sprites.Sparkle;
 import engine.sprites.Sprite;
 import engine.sprites.SpriteContext;
+import engine.sprites.SpriteList;
 import options.LevelOptions;
 import options.SimulationOptions;
 import options.SimulatorOptions;
@@ -64,9 +65,10 @@ public final class LevelScene implements SpriteContext {
 
 	public static final int cellSize = 16;
 
-	final public List<Sprite> sprites = new ArrayList<Sprite>();
-	final private List<Sprite> spritesToAdd = new ArrayList<Sprite>();
-	final private List<Sprite> spritesToRemove = new ArrayList<Sprite>();
+	final public List<Sprite> sprites = new SpriteList();
+	// these and the shell and fireball queues are sized up front, so that their first use in an episode does not allocate
+	final private List<Sprite> spritesToAdd = new ArrayList<Sprite>(16);
+	final private List<Sprite> spritesToRemove = new ArrayList<Sprite>(16);
 
 	public Level level;
 	public Mario mario;
@@ -74,12 +76,23 @@ public final class LevelScene implements SpriteContext {
 
 	public int tickCount;
 
+	/** Cannons fire every CANNON_PERIOD ticks, see {@link #tick()}. */
+	private static final int CANNON_PERIOD = 100;
+
+	/**
+	 * {@link #getStateHash()} tells apart only the last TIME_LEFT_HORIZON ticks before the time runs out (when Mario dies),
+	 * so states further from it still match each other; transitions cached for {@link TranspositionCache} must be shorter.
+	 */
+	public static final int TIME_LEFT_HORIZON = 1024;
+
 	public int startTime = 0;
 	private int timeLeft;
 	private int width;
 	private int height;
 
-	private Random randomGen = new Random(0);
+	// reseeded from the level seed in reset(), see getRandom() and getEffectRandom()
+	private final FastRandom random = new FastRandom(0);
+	private final FastRandom effectRandom = new FastRandom(0);
 
 	final private List<Float> enemiesFloatsList = new ArrayList<Float>();
 	final private float[] marioFloatPos = new float[2];
@@ -101,12 +114,24 @@ public final class LevelScene implements SpriteContext {
 	private int levelDifficulty;
 	private int levelLength;
 	private int levelHeight;
-	public static int killedCreaturesTotal;
-	public static int killedCreaturesByFireBall;
-	public static int killedCreaturesByStomp;
-	public static int killedCreaturesByShell;
-
-	public LevelScene() {
+	public int killedCreaturesTotal;
+	public int killedCreaturesByFireBall;
+	public int killedCreaturesByStomp;
+	public int killedCreaturesByShell;
+
+	/** Whether this scene is the one being drawn; only then it follows interactive toggles in {@link SimulatorOptions}. */
+	private boolean visualization;
+	/** See {@link #hasCosmeticSprites()}. */
+	private boolean cosmeticSprites;
+	private boolean creaturesFrozen;
+	private boolean powerRestoration;
+
+	private float creaturesGravity;
+	private float creaturesWind;
+	private float creaturesIce;
+
+	static {
+		// tile behaviors are shared by all scenes, load them only once
 		try {
 			Level.loadBehaviors(new DataInputStream(LevelScene.class.getResourceAsStream("/engine/resources/tiles.dat")));
 		} catch (IOException e) {
@@ -116,6 +141,9 @@ public final class LevelScene implements SpriteContext {
 		}
 	}
 
+	public LevelScene() {
+	}
+
 	public float[] getEnemiesFloatPos() {
 		enemiesFloatsList.clear();
 		for (Sprite sprite : sprites) {
@@ -151,20 +179,26 @@ public final class LevelScene implements SpriteContext {
 
 	public int fireballsOnScreen = 0;
 
-	List<Shell> shellsToCheck = new ArrayList<Shell>();
+	List<Shell> shellsToCheck = new ArrayList<Shell>(16);
 
 	public void checkShellCollide(Shell shell) {
 		shellsToCheck.add(shell);
 	}
 
-	List<Fireball> fireballsToCheck = new ArrayList<Fireball>();
+	List<Fireball> fireballsToCheck = new ArrayList<Fireball>(16);
+
+	/** Broad phase for {@link #shellsToCheck} and {@link #fireballsToCheck}, rebuilt in every tick that has any. */
+	private final SpriteGrid spriteGrid = new SpriteGrid();
+
+	/** Sprites being copied by {@link #restore(Snapshot)}, reused. */
+	private final List<Sprite> restoredSprites = new ArrayList<Sprite>();
 
 	public void checkFireballCollide(Fireball fireball) {
 		fireballsToCheck.add(fireball);
 	}
 
 	public void tick() {
-		if (SimulatorOptions.isGameplayStopped) {
+		if (visualization && SimulatorOptions.isGameplayStopped) {
 			if (SimulatorOptions.nextFrameIfPaused) {
 				SimulatorOptions.nextFrameIfPaused = false;
 			} else {
@@ -189,19 +223,20 @@ public final class LevelScene implements SpriteContext {
 		if (xCam < 0)
 			xCam = 0;
 		if (xCam > level.length * cellSize
-				- SimulatorOptions.VISUAL_COMPONENT_WIDTH)
+				- this.width)
 			xCam = level.length * cellSize
-					- SimulatorOptions.VISUAL_COMPONENT_WIDTH;
+					- this.width;
 
 		fireballsOnScreen = 0;
 
-		for (Sprite sprite : sprites) {
+		for (int i = 0; i < sprites.size(); ++i) {
+			Sprite sprite = sprites.get(i);
 			if (sprite != mario) {
 				float xd = sprite.x - xCam;
 				float yd = sprite.y - yCam;
-				if (xd < -64 || xd > SimulatorOptions.VISUAL_COMPONENT_WIDTH + 64
+				if (xd < -64 || xd > this.width + 64
 						|| yd < -64
-						|| yd > SimulatorOptions.VISUAL_COMPONENT_HEIGHT + 64) {
+						|| yd > this.height + 64) {
 					removeSprite(sprite);
 				} else {
 					if (sprite instanceof Fireball)
@@ -228,7 +263,7 @@ public final class LevelScene implements SpriteContext {
 
 				if (st != null) {
 					if (st.lastVisibleTick != tickCount - 1) {
-						if (st.sprite == null || !sprites.contains(st.sprite))
+						if (st.sprite == null || !st.sprite.isInScene())
 							st.spawn(this, x, y, dir);
 					}
 
@@ -239,12 +274,12 @@ public final class LevelScene implements SpriteContext {
 					byte b = level.getBlock(x, y);
 					if (((Level.TILE_BEHAVIORS[b & 0xff]) & Level.BIT_ANIMATED) > 0) {
 						if ((b % cellSize) / 4 == 3 && b / cellSize == 0) {
-							if ((tickCount - x * 2) % 100 == 0) {
-								for (int i = 0; i < 8; i++) {
-									addSprite(new Sparkle(x * cellSize + 8, y
+							if ((tickCount - x * 2) % CANNON_PERIOD == 0) {
+								for (int i = 0; i < 8 && hasCosmeticSprites(); i++) {
+									addSprite(new Sparkle(this, x * cellSize + 8, y
 											* cellSize
-											+ (int) (Math.random() * cellSize),
-											(float) Math.random() * dir, 0, 0,
+											+ (int) (effectRandom.nextDouble() * cellSize),
+											(float) effectRandom.nextDouble() * dir, 0, 0,
 											1, 5));
 								}
 								addSprite(new BulletBill(this, x * cellSize + 8
@@ -255,8 +290,8 @@ public final class LevelScene implements SpriteContext {
 				}
 			}
 
-		for (Sprite sprite : sprites)
-			sprite.tick();
+		for (int i = 0; i < sprites.size(); ++i)
+			sprites.get(i).tick();
 
 		byte levelElement = level.getBlock(mario.mapX, mario.mapY);
 		if (levelElement == (byte) (13 + 3 * 16)
@@ -269,18 +304,23 @@ public final class LevelScene implements SpriteContext {
 			mario.setInLadderZone(false);
 		}
 
-		for (Sprite sprite : sprites)
-			sprite.collideCheck();
+		for (int i = 0; i < sprites.size(); ++i)
+			sprites.get(i).collideCheck();
+
+		if (!shellsToCheck.isEmpty() || !fireballsToCheck.isEmpty())
+			spriteGrid.build(sprites, level.length);
 
-		for (Shell shell : shellsToCheck) {
-			for (Sprite sprite : sprites) {
+		for (int s = 0; s < shellsToCheck.size(); ++s) {
+			Shell shell = shellsToCheck.get(s);
+			for (int i = 0, count = spriteGrid.query(shell.x); i < count; ++i) {
+				Sprite sprite = spriteGrid.getCandidate(i);
 				if (sprite != shell && !shell.dead) {
 					if (sprite.shellCollideCheck(shell)) {
 						if (mario.carried == shell && !shell.dead) {
 							mario.carried = null;
 							mario.setRaccoon(false);
 							shell.die();
-							++LevelScene.killedCreaturesTotal;
+							++killedCreaturesTotal;
 						}
 					}
 				}
@@ -288,11 +328,15 @@ public final class LevelScene implements SpriteContext {
 		}
 		shellsToCheck.clear();
 
-		for (Fireball fireball : fireballsToCheck)
-			for (Sprite sprite : sprites)
+		for (int f = 0; f < fireballsToCheck.size(); ++f) {
+			Fireball fireball = fireballsToCheck.get(f);
+			for (int i = 0, count = spriteGrid.query(fireball.x); i < count; ++i) {
+				Sprite sprite = spriteGrid.getCandidate(i);
 				if (sprite != fireball && !fireball.dead)
 					if (sprite.fireballCollideCheck(fireball))
 						fireball.die();
+			}
+		}
 		fireballsToCheck.clear();
 
 		sprites.addAll(0, spritesToAdd);
@@ -302,6 +346,7 @@ public final class LevelScene implements SpriteContext {
 	}
 
 	public void addSprite(Sprite sprite) {
+		sprite.spriteContext = this;
 		spritesToAdd.add(sprite);
 		sprite.tick();
 	}
@@ -315,7 +360,7 @@ public final class LevelScene implements SpriteContext {
 
 		if ((Level.TILE_BEHAVIORS[block & 0xff] & Level.BIT_BUMPABLE) > 0) {
 			if (block == 1)
-				Mario.gainHiddenBlock();
+				mario.gainHiddenBlock();
 			bumpInto(x, y - 1);
 			byte blockData = level.getBlockData(x, y);
 			if (blockData < 0)
@@ -327,24 +372,25 @@ public final class LevelScene implements SpriteContext {
 			}
 
 			if (((Level.TILE_BEHAVIORS[block & 0xff]) & Level.BIT_SPECIAL) > 0) {
-				if (randomGen.nextInt(5) == 0 && level.difficulty > 4) {
+				if (random.nextInt(5) == 0 && level.difficulty > 4) {
 					addSprite(new GreenMushroom(this, x * cellSize + 8, y
 							* cellSize + 8));
-					++Level.counters.greenMushrooms;
+					++level.counters.greenMushrooms;
 				} else {
-					if (!Mario.large) {
+					if (!mario.large) {
 						addSprite(new Mushroom(this, x * cellSize + 8, y
 								* cellSize + 8));
-						++Level.counters.mushrooms;
+						++level.counters.mushrooms;
 					} else {
 						addSprite(new FireFlower(this, x * cellSize + 8, y
 								* cellSize + 8));
-						++Level.counters.flowers;
+						++level.counters.flowers;
 					}
 				}
 			} else {
-				Mario.gainCoin();
-				addSprite(new CoinAnim(x, y));
+				mario.gainCoin();
+				if (hasCosmeticSprites())
+					addSprite(new CoinAnim(x, y));
 			}
 		}
 
@@ -352,9 +398,9 @@ public final class LevelScene implements SpriteContext {
 			bumpInto(x, y - 1);
 			if (canBreakBricks) {
 				level.setBlock(x, y, (byte) 0);
-				for (int xx = 0; xx < 2; xx++)
+				for (int xx = 0; xx < 2 && hasCosmeticSprites(); xx++)
 					for (int yy = 0; yy < 2; yy++)
-						addSprite(new Particle(x * cellSize + xx * 8 + 4, y
+						addSprite(new Particle(this, x * cellSize + xx * 8 + 4, y
 								* cellSize + yy * 8 + 4, (xx * 2 - 1) * 4,
 								(yy * 2 - 1) * 4 - 8));
 			} else {
@@ -366,12 +412,14 @@ public final class LevelScene implements SpriteContext {
 	public void bumpInto(int x, int y) {
 		byte block = level.getBlock(x, y);
 		if (((Level.TILE_BEHAVIORS[block & 0xff]) & Level.BIT_PICKUPABLE) > 0) {
-			Mario.gainCoin();
+			mario.gainCoin();
 			level.setBlock(x, y, (byte) 0);
-			addSprite(new CoinAnim(x, y + 1));
+			if (hasCosmeticSprites())
+				addSprite(new CoinAnim(x, y + 1));
 		}
 
-		for (Sprite sprite : sprites) {
+		for (int i = 0; i < sprites.size(); ++i) {
+			Sprite sprite = sprites.get(i);
 			sprite.bumpCheck(x, y);
 		}
 	}
@@ -459,12 +507,61 @@ public final class LevelScene implements SpriteContext {
 		return mario.mayJump();
 	}
 
+	public boolean areCreaturesFrozen() {
+		return visualization ? SimulatorOptions.areFrozenCreatures : creaturesFrozen;
+	}
+
+	public boolean isFly() {
+		return visualization && SimulatorOptions.isFly;
+	}
+
+	@Override
+	public FastRandom getRandom() {
+		return random;
+	}
+
+	@Override
+	public FastRandom getEffectRandom() {
+		return effectRandom;
+	}
+
+	/**
+	 * Whether purely visual sprites ({@link Sparkle}, {@link Particle}, {@link CoinAnim}) are created;
+	 * they never take part in gameplay, so a headless scene does not spend time on them
+	 * unless asked to by {@link VisualizationOptions#isCosmeticSprites()}.
+	 */
+	public boolean hasCosmeticSprites() {
+		return cosmeticSprites;
+	}
+
+	public boolean isPowerRestoration() {
+		return powerRestoration;
+	}
+
+	public float getCreaturesGravity() {
+		return creaturesGravity;
+	}
+
+	public float getCreaturesWind() {
+		return creaturesWind;
+	}
+
+	public float getCreaturesIce() {
+		return creaturesIce;
+	}
+
 	public void reset() {
-		SimulatorOptions.FPS = VisualizationOptions.getFPS();
-		SimulatorOptions.isPowerRestoration = SimulationOptions.isPowerRestoration();
-		SimulatorOptions.areFrozenCreatures = SimulationOptions.isCreaturesFrozen();
+		visualization = VisualizationOptions.isVisualization();
+		cosmeticSprites = visualization || VisualizationOptions.isCosmeticSprites();
+		powerRestoration = SimulationOptions.isPowerRestoration();
+		creaturesFrozen = SimulationOptions.isCreaturesFrozen();
 		this.setTimeLimit(SimulationOptions.getTimeLimit());
-		SimulatorOptions.isVisualization = VisualizationOptions.isVisualization();
+		if (visualization) {
+			SimulatorOptions.FPS = VisualizationOptions.getFPS();
+			SimulatorOptions.isPowerRestoration = powerRestoration;
+			SimulatorOptions.areFrozenCreatures = creaturesFrozen;
+			SimulatorOptions.isVisualization = true;
+		}
 
 		killedCreaturesTotal = 0;
 		killedCreaturesByFireBall = 0;
@@ -474,35 +571,38 @@ public final class LevelScene implements SpriteContext {
 		marioInitialPos = LevelOptions.getMarioInitialPosition();
 		greenMushroomMode = LevelOptions.getGreenMushroomMode();
 
-		level = new LevelGenerator().createLevel();
+		level = LevelCache.createLevel();
 
 		if (SystemOptions.isSaveLevelFileName()) {
 			try {
-				Level.save(level, new ObjectOutputStream(new FileOutputStream(SystemOptions.getSaveLevelFileName())));
+				LevelFormat.save(level, SystemOptions.getSaveLevelFileName());
 			} catch (IOException e) {
 				MarioLog.error("[Mario AI Exception] ~ Cannot write to file " + SystemOptions.getSaveLevelFileName());
 				e.printStackTrace();
 			}
 		}
 		this.levelSeed = level.randomSeed;
+		random.setSeed(level.randomSeed);
+		effectRandom.setSeed(~level.randomSeed);
 		this.levelLength = level.length;
 		this.levelHeight = level.height;
 		this.levelType = level.type;
 		this.levelDifficulty = level.difficulty;
 
-		Sprite.spriteContext = this;
 		sprites.clear();
-		this.width = SimulatorOptions.VISUAL_COMPONENT_WIDTH;
-		this.height = SimulatorOptions.VISUAL_COMPONENT_HEIGHT;
+		spriteGrid.clear();
+		spriteGrid.reserve(level.length);
+		this.width = VisualizationOptions.getViewportWidth();
+		this.height = VisualizationOptions.getViewportHeight();
 
-		Sprite.setCreaturesGravity(SimulationOptions.getGravityCreatures());
-		Sprite.setCreaturesWind(SimulationOptions.getWindCreatures());
-		Sprite.setCreaturesIce(SimulationOptions.getWindMario());
-		Mario.resetStatic();
+		creaturesGravity = SimulationOptions.getGravityCreatures();
+		creaturesWind = SimulationOptions.getWindCreatures();
+		creaturesIce = SimulationOptions.getWindMario();
 
 		score = 0;
 
 		mario = new Mario(this);
+		mario.spriteContext = this;
 		// System.out.println("mario = " + mario);
 		memo = "";
 
@@ -513,6 +613,96 @@ public final class LevelScene implements SpriteContext {
 		tickCount = 0;
 	}
 
+	/**
+	 * Saves the whole state of the scene, so that a planning agent can try actions in it and come back via {@link #restore(Snapshot)}.
+	 * Must be called between ticks. Sprites are copied, the level is copy-on-write (see {@link Level#saveState()}),
+	 * so a snapshot costs about as much as copying the sprites.
+	 */
+	public Snapshot snapshot() {
+		if (!spritesToAdd.isEmpty() || !spritesToRemove.isEmpty()) {
+			MarioLog.error("LevelScene.snapshot(): cannot take a snapshot in the middle of a tick.");
+			throw new RuntimeException("Snapshot can be taken only between ticks.");
+		}
+		return new Snapshot(this);
+	}
+
+	/**
+	 * Brings the scene back to 'snapshot'. The snapshot may come from another scene, e.g. a scratch scene of another thread;
+	 * the first restore of a snapshot of another level forks that level (see {@link Level#fork(Level.State)}), later ones reuse the fork.
+	 * Settings of the scene itself (visualization) are kept.
+	 */
+	public void restore(Snapshot snapshot) {
+		if (level != null && level.getOrigin() == snapshot.level.getOrigin()) {
+			level.restoreState(snapshot.level);
+		} else {
+			level = Level.fork(snapshot.level);
+		}
+
+		sprites.clear();
+		spritesToAdd.clear();
+		spritesToRemove.clear();
+		shellsToCheck.clear();
+		fireballsToCheck.clear();
+		spriteGrid.clear();
+
+		copySprites(snapshot.sprites, this, restoredSprites);
+		for (int i = 0; i < restoredSprites.size(); ++i) {
+			Sprite sprite = restoredSprites.get(i);
+			if (sprite.spriteTemplate != null)
+				sprite.spriteTemplate = level.getTemplate(sprite.spriteTemplate.getIndex());
+		}
+		for (int t = 0; t < snapshot.templateSprites.length; ++t) {
+			int index = snapshot.templateSprites[t];
+			if (index >= 0)
+				level.getTemplate(t).sprite = restoredSprites.get(index);
+		}
+		sprites.addAll(0, restoredSprites);
+		mario = (Mario) restoredSprites.get(snapshot.marioIndex);
+		restoredSprites.clear();
+
+		xCam = snapshot.xCam;
+		yCam = snapshot.yCam;
+		xCamO = snapshot.xCamO;
+		yCamO = snapshot.yCamO;
+		tickCount = snapshot.tickCount;
+		startTime = snapshot.startTime;
+		timeLeft = snapshot.timeLeft;
+		timeLimit = snapshot.timeLimit;
+		width = snapshot.width;
+		height = snapshot.height;
+		score = snapshot.score;
+		memo = snapshot.memo;
+		fireballsOnScreen = snapshot.fireballsOnScreen;
+		killedCreaturesTotal = snapshot.killedCreaturesTotal;
+		killedCreaturesByFireBall = snapshot.killedCreaturesByFireBall;
+		killedCreaturesByStomp = snapshot.killedCreaturesByStomp;
+		killedCreaturesByShell = snapshot.killedCreaturesByShell;
+		marioInitialPos = snapshot.marioInitialPos;
+		greenMushroomMode = snapshot.greenMushroomMode;
+		levelSeed = snapshot.levelSeed;
+		levelType = snapshot.levelType;
+		levelDifficulty = snapshot.levelDifficulty;
+		levelLength = snapshot.levelLength;
+		levelHeight = snapshot.levelHeight;
+		creaturesFrozen = snapshot.creaturesFrozen;
+		powerRestoration = snapshot.powerRestoration;
+		creaturesGravity = snapshot.creaturesGravity;
+		creaturesWind = snapshot.creaturesWind;
+		creaturesIce = snapshot.creaturesIce;
+		random.setState(snapshot.random);
+		effectRandom.setState(snapshot.effectRandom);
+	}
+
+	/**
+	 * Copies sprites 'from' into 'to' in the same order, living in 'context'.
+	 */
+	private static void copySprites(List<Sprite> from, SpriteContext context, List<Sprite> to) {
+		for (int i = 0; i < from.size(); ++i)
+			to.add(from.get(i).copy(context));
+		for (int i = 0; i < from.size(); ++i)
+			to.get(i).relink(from, to);
+	}
+
 	public float[] getMarioFloatPos() {
 		marioFloatPos[0] = this.mario.x;
 		marioFloatPos[1] = this.mario.y;
@@ -563,7 +753,145 @@ public final class LevelScene implements SpriteContext {
 		return score;
 	}
 
+	/**
+	 * 64-bit hash of the gameplay state: all sprites including Mario (see {@link Sprite#stateHash()}, summed so their order
+	 * does not matter), changed level cells (see {@link Level#getCellHash()}), camera, the phase of cannons, the gameplay
+	 * random generator and the time left once it is within {@link #TIME_LEFT_HORIZON}. Cosmetic sprites, the effect random
+	 * generator and the other clocks are left out, so the same situation reached by different actions hashes the same.
+	 * Equal states always have equal hashes, different states collide only rarely; see {@link TranspositionCache}.
+	 * <br/><br/>
+	 * Level cells are hashed incrementally as they change, sprites are summed on every call, i.e., O(number of sprites).
+	 */
+	public long getStateHash() {
+		// camera decides which sprite templates spawn next tick, cannons fire in phase with the tick count
+		long hash = level.getCellHash() + Sprite.hashState(Float.floatToIntBits(xCam), tickCount % CANNON_PERIOD);
+		// advances only on bumps of special blocks (green mushroom roll), so it rarely splits otherwise equal states
+		hash = Sprite.hashState(hash, random.getState());
+		// Mario dies when the time runs out
+		hash = Sprite.hashState(hash, Math.min(timeLeft, TIME_LEFT_HORIZON));
+		for (int i = 0; i < sprites.size(); ++i) {
+			Sprite sprite = sprites.get(i);
+			switch (sprite.kind) {
+			case Sprite.KIND_SPARCLE:
+			case Sprite.KIND_PARTICLE:
+			case Sprite.KIND_COIN_ANIM:
+				continue;
+			}
+			hash += sprite.stateHash();
+		}
+		return hash;
+	}
+
 	public void scorePoints(final int superPunti) {
 		score += superPunti;
 	}
+
+	/**
+	 * State of a {@link LevelScene} saved by {@link LevelScene#snapshot()}: Mario, all sprites, states of sprite templates,
+	 * counters, score, timers, random generators and changes of the level. Immutable: it can be restored many times, from many threads
+	 * and into other scenes, see {@link LevelScene#restore(Snapshot)}.
+	 */
+	public static final class Snapshot {
+
+		private final Level.State level;
+
+		/** Copies of the sprites, not living in any scene. */
+		private final List<Sprite> sprites;
+		private final int marioIndex;
+
+		/** For every sprite template of the level, index of its sprite within {@link #sprites}, -1 if it has none in the scene. */
+		private final int[] templateSprites;
+
+		private final float xCam, yCam, xCamO, yCamO;
+		private final int tickCount;
+		private final int startTime;
+		private final int timeLeft;
+		private final int timeLimit;
+		private final int width;
+		private final int height;
+		private final int score;
+		private final String memo;
+		private final int fireballsOnScreen;
+		private final int killedCreaturesTotal;
+		private final int killedCreaturesByFireBall;
+		private final int killedCreaturesByStomp;
+		private final int killedCreaturesByShell;
+		private final Point marioInitialPos;
+		private final int greenMushroomMode;
+		private final long levelSeed;
+		private final int levelType;
+		private final int levelDifficulty;
+		private final int levelLength;
+		private final int levelHeight;
+		private final boolean creaturesFrozen;
+		private final boolean powerRestoration;
+		private final float creaturesGravity;
+		private final float creaturesWind;
+		private final float creaturesIce;
+		private final long random;
+		private final long effectRandom;
+
+		private Snapshot(LevelScene scene) {
+			level = scene.level.saveState();
+
+			sprites = new ArrayList<Sprite>(scene.sprites.size());
+			copySprites(scene.sprites, null, sprites);
+			marioIndex = scene.sprites.indexOf(scene.mario);
+			templateSprites = new int[scene.level.getTemplateCount()];
+			Arrays.fill(templateSprites, -1);
+			for (int i = 0; i < scene.sprites.size(); ++i) {
+				Sprite sprite = scene.sprites.get(i);
+				if (sprite.spriteTemplate != null && sprite.spriteTemplate.sprite == sprite)
+					templateSprites[sprite.spriteTemplate.getIndex()] = i;
+			}
+
+			xCam = scene.xCam;
+			yCam = scene.yCam;
+			xCamO = scene.xCamO;
+			yCamO = scene.yCamO;
+			tickCount = scene.tickCount;
+			startTime = scene.startTime;
+			timeLeft = scene.timeLeft;
+			timeLimit = scene.timeLimit;
+			width = scene.width;
+			height = scene.height;
+			score = scene.score;
+			memo = scene.memo;
+			fireballsOnScreen = scene.fireballsOnScreen;
+			killedCreaturesTotal = scene.killedCreaturesTotal;
+			killedCreaturesByFireBall = scene.killedCreaturesByFireBall;
+			killedCreaturesByStomp = scene.killedCreaturesByStomp;
+			killedCreaturesByShell = scene.killedCreaturesByShell;
+			marioInitialPos = scene.marioInitialPos;
+			greenMushroomMode = scene.greenMushroomMode;
+			levelSeed = scene.levelSeed;
+			levelType = scene.levelType;
+			levelDifficulty = scene.levelDifficulty;
+			levelLength = scene.levelLength;
+			levelHeight = scene.levelHeight;
+			creaturesFrozen = scene.creaturesFrozen;
+			powerRestoration = scene.powerRestoration;
+			creaturesGravity = scene.creaturesGravity;
+			creaturesWind = scene.creaturesWind;
+			creaturesIce = scene.creaturesIce;
+			random = scene.random.getState();
+			effectRandom = scene.effectRandom.getState();
+		}
+
+		public int getTickCount() {
+			return tickCount;
+		}
+
+		public int getScore() {
+			return score;
+		}
+
+		/**
+		 * Copy of Mario in the snapshot; read only.
+		 */
+		public Mario getMario() {
+			return (Mario) sprites.get(marioIndex);
+		}
+
+	}
 }
@@ -70,23 +70,48 @@ public final class MarioEnvironment implements IEnvironment {
 	 */
 	private List<Entity>[][] entityField;    
 	
-	public List<Entity> entities;
+	// initial capacities of the entity views, so that they rarely grow within an episode (they never shrink)
+	static final int INITIAL_ENTITIES = 16;
+	static final int INITIAL_ENTITIES_PER_CELL = 4;
+
+	public final List<Entity> entities = new ArrayList<Entity>(INITIAL_ENTITIES);
+
+	/** Entities reused from tick to tick, the first entities.size() of them are the current ones. */
+	private final List<Entity> entityPool = new ArrayList<Entity>(INITIAL_ENTITIES);
+
+	private final FlatObservation flatObservation = new FlatObservation();
+
+	/** Tiles of the receptive field, follows Mario instead of being re-read every tick; allocated in {@link #reset()}. */
+	private TileWindow tileWindow;
+
+	// observations are computed lazily from the scene, at most once per 'version' (bumped by reset() and tick()):
+	// the flat arrays first, object views from them only when somebody asks for them
+
+	private int version = 0;
+	private int flatVersion = -1;
+	private int tilesVersion = -1;
+	private int entitiesVersion = -1;
+
+	private static final Tile[] TILES = Tile.values();
+	private static final EntityType[] ENTITY_TYPES = EntityType.values();
 
 	private final LevelScene levelScene;
 	private VisualizationComponent marioVisualComponent;
 	private IAgent agent;
+	private boolean visualization;
 
-	private static final MarioEnvironment ourInstance = new MarioEnvironment();
-	private static final EvaluationInfo evaluationInfo = new EvaluationInfo();
+	private final EvaluationInfo evaluationInfo = new EvaluationInfo();
 
 	DecimalFormat df = new DecimalFormat("######.#");
 
-	public static MarioEnvironment getInstance() {
-		return ourInstance;
-	}
-
-	private MarioEnvironment() {
+	/**
+	 * Creates a standalone environment with its own {@link LevelScene}; environments share no mutable state.
+	 * Usually created through {@link SimulationInstance}, which also owns the options the environment is reset with.
+	 */
+	public MarioEnvironment() {
 		MarioLog.fine(SimulatorOptions.getBenchmarkName());
+		for (int i = 0; i < INITIAL_ENTITIES; ++i)
+			entityPool.add(new Entity(null, EntityType.NOTHING, 0, 0, 0, 0, 0));
 		levelScene = new LevelScene();
 	}
 
@@ -116,9 +141,10 @@ public final class MarioEnvironment implements IEnvironment {
 			entityField = new List[mario.receptiveFieldHeight][mario.receptiveFieldWidth];
 			for (int row = 0; row < mario.receptiveFieldHeight; ++row) {
 				for (int col = 0; col < mario.receptiveFieldWidth; ++col) {
-					entityField[row][col] = new ArrayList<Entity>();
+					entityField[row][col] = new ArrayList<Entity>(INITIAL_ENTITIES_PER_CELL);
 				}
 			}
+			tileWindow = new TileWindow(mario.receptiveFieldWidth, mario.receptiveFieldHeight);
 			this.prevRFH = mario.receptiveFieldHeight;
 			this.prevRFW = mario.receptiveFieldWidth;
 		}
@@ -134,7 +160,8 @@ public final class MarioEnvironment implements IEnvironment {
 		mario.zLevelTiles = AIOptions.getTileGeneralizationZLevel();
 		mario.zLevelEntities = AIOptions.getEntityGeneralizationZLevel();
 		
-		if (VisualizationOptions.isVisualization()) {
+		visualization = VisualizationOptions.isVisualization();
+		if (visualization) {
 			if (marioVisualComponent == null)
 				marioVisualComponent = VisualizationComponent.getInstance(this);
 			levelScene.reset();
@@ -145,17 +172,25 @@ public final class MarioEnvironment implements IEnvironment {
 		} else
 			levelScene.reset();
 
-		entities = new ArrayList<Entity>();
+		entities.clear();
+		flatObservation.resize(mario.receptiveFieldWidth, mario.receptiveFieldHeight);
+		++version;
 
 		agent.reset(new AgentOptions(this));
 	}
 
+	/**
+	 * Advances the scene by one tick. With visualization off, the tick and the observations computed after it
+	 * ({@link #getEntities()}, {@link #getTileField()}, {@link #getFlatObservation()}) allocate nothing, except when game
+	 * objects spawn, when a block is written in a level column for the first time in the episode (levels are copy-on-write),
+	 * when the episode ends, or when more entities are in view than ever before in the episode and the reused entity
+	 * buffers grow; see the AllocationCheck self-check.
+	 */
 	public void tick() {
 		levelScene.tick();			
 		updateMario();
-		computeTiles(mario.zLevelTiles);
-		computeEntities(mario.zLevelEntities);
-		if (SimulatorOptions.isVisualization) {
+		++version;
+		if (visualization) {
 			marioVisualComponent.tick();
 		}
 	}
@@ -184,30 +219,26 @@ public final class MarioEnvironment implements IEnvironment {
 
 	}
 	
-	private void computeTiles(int ZLevel) {
-		int mCol = mario.egoCol;
-		int mRow = mario.egoRow;
-		for (int y = levelScene.mario.mapY - mRow, row = 0; y <= levelScene.mario.mapY + (mario.receptiveFieldHeight - mRow - 1); y++, row++) {
-			for (int x = levelScene.mario.mapX - mCol, col = 0; x <= levelScene.mario.mapX + (mario.receptiveFieldWidth - mCol - 1); x++, col++) {
-				if (x >= 0 && x < levelScene.level.length && y >= 0 && y < levelScene.level.height) {
-					tileField[row][col] = TileGeneralizer.generalize(levelScene.level.map[x][y],	ZLevel);
-				} else {
-					tileField[row][col] = Tile.NOTHING;
-				}
-			}
+	@Override
+	public FlatObservation getFlatObservation() {
+		if (flatVersion != version) {
+			computeFlatTiles(mario.zLevelTiles);
+			computeFlatEntities(mario.zLevelEntities);
+			flatVersion = version;
 		}
+		return flatObservation;
 	}
 
-	public Tile[][] getTileField() {
-		return tileField;
+	private void computeFlatTiles(int ZLevel) {
+		tileWindow.update(levelScene.level, levelScene.mario.mapX - mario.egoCol, levelScene.mario.mapY - mario.egoRow, ZLevel);
+		tileWindow.copyTo(flatObservation.tiles, 0);
 	}
-	
-	private void computeEntities(int ZLevel) {
-		for (int w = 0; w < entityField.length; w++)
-			for (int h = 0; h < entityField[0].length; h++)
-				entityField[w][h].clear();
-		entities.clear();
-		for (Sprite sprite : levelScene.sprites) {
+
+	private void computeFlatEntities(int ZLevel) {
+		FlatObservation flat = flatObservation;
+		int count = 0;
+		for (int i = 0; i < levelScene.sprites.size(); ++i) {
+			Sprite sprite = levelScene.sprites.get(i);
 			if (sprite.isDead() || sprite.kind == levelScene.mario.kind)
 				continue;
 			// IS SPRITE WITHIN RECEPTIVE FIELD?
@@ -220,9 +251,6 @@ public final class MarioEnvironment implements IEnvironment {
 			) {
 				// YES IT IS!
 				
-				int row = sprite.mapY - levelScene.mario.mapY + mario.egoRow;
-				int col = sprite.mapX - levelScene.mario.mapX + mario.egoCol;
-
 				EntityType entityType = EntityGeneralizer.generalize(sprite.kind, ZLevel); 
 				if (entityType == EntityType.SHELL_STILL || entityType == EntityType.SHELL_MOVING) {
 					if (Math.abs(sprite.x - sprite.xOld) > 0.001 || Math.abs(sprite.y - sprite.yOld) > 0.001) {
@@ -231,26 +259,83 @@ public final class MarioEnvironment implements IEnvironment {
 						entityType = EntityType.SHELL_STILL;
 					}
 				}
-				
-				Entity entity = new Entity(
-                    sprite, entityType, col - mario.egoCol, row - mario.egoRow,
-                    sprite.x - levelScene.mario.x, sprite.y - levelScene.mario.y, sprite.y);
-				entity.speed.x = entity.sprite.x - entity.sprite.xOld;
-				entity.speed.y = entity.sprite.y - entity.sprite.yOld;
-				
-				entityField[row][col].add(entity);
-				
-				entities.add(entity);
+
+				flat.ensureEntities(count + 1);
+				int ints = count * FlatObservation.ENTITY_INTS;
+				flat.entityInts[ints] = entityType.ordinal();
+				flat.entityInts[ints + 1] = sprite.mapX - levelScene.mario.mapX;
+				flat.entityInts[ints + 2] = sprite.mapY - levelScene.mario.mapY;
+				int floats = count * FlatObservation.ENTITY_FLOATS;
+				flat.entityFloats[floats] = sprite.x - levelScene.mario.x;
+				flat.entityFloats[floats + 1] = sprite.y - levelScene.mario.y;
+				flat.entityFloats[floats + 2] = sprite.x - sprite.xOld;
+				flat.entityFloats[floats + 3] = sprite.y - sprite.yOld;
+				flat.entitySprites[count] = sprite;
+				++count;
 			}
 		}
+		for (int i = count; i < flat.entityCount; ++i) {
+			flat.entitySprites[i] = null;
+		}
+		flat.entityCount = count;
 	}
 
-	public List<Entity>[][] getEntityField() {		
+	public Tile[][] getTileField() {
+		if (tilesVersion != version) {
+			byte[] tiles = getFlatObservation().tiles;
+			for (int row = 0; row < mario.receptiveFieldHeight; ++row) {
+				for (int col = 0; col < mario.receptiveFieldWidth; ++col) {
+					tileField[row][col] = TILES[tiles[row * mario.receptiveFieldWidth + col]];
+				}
+			}
+			tilesVersion = version;
+		}
+		return tileField;
+	}
+
+	private void computeEntities() {
+		FlatObservation flat = getFlatObservation();
+		for (int w = 0; w < entityField.length; w++)
+			for (int h = 0; h < entityField[0].length; h++)
+				entityField[w][h].clear();
+		entities.clear();
+		for (int i = 0; i < flat.entityCount; ++i) {
+			Sprite sprite = flat.entitySprites[i];
+			int ints = i * FlatObservation.ENTITY_INTS;
+			int floats = i * FlatObservation.ENTITY_FLOATS;
+			int dTX = flat.entityInts[ints + 1];
+			int dTY = flat.entityInts[ints + 2];
+
+			Entity entity;
+			if (i < entityPool.size()) {
+				entity = entityPool.get(i);
+			} else {
+				entity = new Entity(null, EntityType.NOTHING, 0, 0, 0, 0, 0);
+				entityPool.add(entity);
+			}
+			entity.set(
+				sprite, ENTITY_TYPES[flat.entityInts[ints]], dTX, dTY,
+				flat.entityFloats[floats], flat.entityFloats[floats + 1], sprite.y);
+			entity.speed.x = flat.entityFloats[floats + 2];
+			entity.speed.y = flat.entityFloats[floats + 3];
+
+			entityField[dTY + mario.egoRow][dTX + mario.egoCol].add(entity);
+
+			entities.add(entity);
+		}
+	}
+
+	public List<Entity>[][] getEntityField() {
+		if (entitiesVersion != version) {
+			computeEntities();
+			entitiesVersion = version;
+		}
 		return entityField;
 	}
 
 	@Override
 	public List<Entity> getEntities() {
+		getEntityField();
 		return entities;
 	}
 
@@ -310,15 +395,16 @@ public final class MarioEnvironment implements IEnvironment {
 	private void computeEvaluationInfo() {
         evaluationInfo.marioStatus = levelScene.getMarioStatus();
         evaluationInfo.score = levelScene.getScore();
-		evaluationInfo.flowersDevoured = Mario.flowersDevoured;
+		evaluationInfo.flowersDevoured = levelScene.mario.flowersDevoured;
 		evaluationInfo.distancePassedPhys = (int) levelScene.mario.x;
 		evaluationInfo.timeSpent = levelScene.getTimeSpent();
 		evaluationInfo.timeLeft = levelScene.getTimeLeft();
-		evaluationInfo.coinsGained = Mario.coins;
+		evaluationInfo.coinsGained = levelScene.mario.coins;
 		evaluationInfo.marioMode = levelScene.getMarioMode();
-		evaluationInfo.mushroomsDevoured = Mario.mushroomsDevoured;
+		evaluationInfo.mushroomsDevoured = levelScene.mario.mushroomsDevoured;
 		evaluationInfo.killsTotal = levelScene.getKillsTotal();
 		evaluationInfo.levelLength = levelScene.level.length;
+		evaluationInfo.ticks = levelScene.tickCount;
 	}
 
 	public IAgent getAgent() {
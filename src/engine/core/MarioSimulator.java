@@ -30,7 +30,6 @@ package engine.core;
 import agents.IAgent;
 import agents.controllers.keyboard.CheaterKeyboardAgent;
 import engine.helper.MarioLog;
-import engine.input.MarioInput;
 import options.*;
 import tournament.EvaluationInfo;
 
@@ -68,35 +67,19 @@ public class MarioSimulator {
 		}
 	}
 	
-	public synchronized EvaluationInfo run(IAgent agent) {
+	/**
+	 * Runs 'agent' within a fresh {@link SimulationInstance}; safe to call from several threads at once.
+	 * @param agent
+	 * @return evaluation of the run
+	 */
+	public EvaluationInfo run(IAgent agent) {
 		MarioLog.fine("[MarioSimulator] run(" + (agent == null ? "NULL" : agent.getClass().getName()) + ")");
 		if (agent == null) {
 			MarioLog.error("[MarioSimulator] agent is NULL! Aborting!");
 			throw new RuntimeException("Agent is NULL! Please specify correct agent to run within the simulator.");
 		}
 		
-		MarioOptions.reset(options);
-		
-		IEnvironment environment = MarioEnvironment.getInstance();
-        environment.reset(agent);
-
-        // initial observation, needed since environment.tick() might call debugDraw()
-        agent.observe(environment);  
-
-		while (!environment.isLevelFinished()) {
-			// UPDATE THE ENVIRONMENT
-			environment.tick();
-			// PUSH NEW PERCEPTS TO THE AGENT
-			agent.observe(environment);
-			// LET AGENT PERFORM ITS ACTION-SELECTION
-			MarioInput actions = agent.actionSelection();
-			// PROPAGATE ACTIONS TO THE ENVIRONMENT
-			environment.performAction(actions);
-		}
-		
-		EvaluationInfo result = environment.getEvaluationInfo();
-		
-		return result.clone(); // result is shared instance ... we must clone it to maintain sanity 		
+		return new SimulationInstance(options).run(agent);
 	}
 	
 	public static EvaluationInfo run(IAgent agent, LevelConfig level, int seed) {
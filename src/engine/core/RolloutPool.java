@@ -0,0 +1,120 @@
+package engine.core;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import engine.input.MarioInput;
+
+/**
+ * Work-stealing pool simulating batches of {@link Rollout}s for search agents, so that they scale their lookahead with
+ * available cores instead of managing threads themselves.
+ * <br/><br/>
+ * Every worker thread owns a {@link ForwardModel} whose scratch scene is reused by all rollouts the thread runs;
+ * rollouts of one level fork it into the thread only once. Create one pool per agent (or share one among agents)
+ * and {@link #shutdown()} it when done.
+ * <br/><br/>
+ * {@link #run(List, int)} honors a wall-clock budget, typically {@link agents.AgentOptions#tickBudget} supplied by the simulator:
+ * rollouts not started when it runs out are skipped.
+ */
+public class RolloutPool {
+
+	/**
+	 * Rollouts simulated by one task without further splitting.
+	 */
+	private static final int BATCH = 4;
+
+	private final ForkJoinPool pool;
+
+	private final ThreadLocal<ForwardModel> models = ThreadLocal.withInitial(ForwardModel::new);
+
+	/**
+	 * Pool with a thread per available processor.
+	 */
+	public RolloutPool() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public RolloutPool(int threads) {
+		pool = new ForkJoinPool(threads);
+	}
+
+	public int getThreads() {
+		return pool.getParallelism();
+	}
+
+	/**
+	 * Simulates all 'rollouts', see {@link ForwardModel#simulate(LevelScene.Snapshot, MarioInput[])}; blocks until they are done.
+	 * @param rollouts rollouts to simulate; they are split among threads in contiguous ranges, each range simulated in order
+	 * @param budget wall-clock milliseconds for the whole batch, 0 = unlimited
+	 * @return result of every rollout at its index; null for rollouts skipped because the budget ran out
+	 */
+	public ForwardModel.Result[] run(List<Rollout> rollouts, int budget) {
+		ForwardModel.Result[] results = new ForwardModel.Result[rollouts.size()];
+		long deadline = budget > 0 ? System.nanoTime() + budget * 1000000L : Long.MAX_VALUE;
+		pool.invoke(new Task(rollouts, results, 0, rollouts.size(), deadline));
+		return results;
+	}
+
+	public void shutdown() {
+		pool.shutdownNow();
+	}
+
+	/**
+	 * Action sequence to perform from a snapshot, see {@link LevelScene#snapshot()}.
+	 */
+	public static final class Rollout {
+
+		private final LevelScene.Snapshot snapshot;
+		private final MarioInput[] actions;
+
+		public Rollout(LevelScene.Snapshot snapshot, MarioInput[] actions) {
+			this.snapshot = snapshot;
+			this.actions = actions;
+		}
+
+		public LevelScene.Snapshot getSnapshot() {
+			return snapshot;
+		}
+
+		public MarioInput[] getActions() {
+			return actions;
+		}
+
+	}
+
+	private class Task extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<Rollout> rollouts;
+		private final ForwardModel.Result[] results;
+		private final int from;
+		private final int to;
+		private final long deadline;
+
+		Task(List<Rollout> rollouts, ForwardModel.Result[] results, int from, int to, long deadline) {
+			this.rollouts = rollouts;
+			this.results = results;
+			this.from = from;
+			this.to = to;
+			this.deadline = deadline;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > BATCH) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Task(rollouts, results, from, middle, deadline), new Task(rollouts, results, middle, to, deadline));
+				return;
+			}
+			ForwardModel model = models.get();
+			for (int i = from; i < to && System.nanoTime() < deadline; ++i) {
+				Rollout rollout = rollouts.get(i);
+				results[i] = model.simulate(rollout.snapshot, rollout.actions);
+			}
+		}
+
+	}
+
+}
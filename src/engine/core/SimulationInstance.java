@@ -0,0 +1,99 @@
+package engine.core;
+
+import agents.IAgent;
+import engine.helper.MarioLog;
+import engine.input.MarioInput;
+import options.MarioOptions;
+import options.VisualizationOptions;
+import tournament.EvaluationInfo;
+
+/**
+ * One self-contained simulation: its own {@link MarioOptions}, {@link MarioEnvironment} and {@link LevelScene};
+ * all per-episode state (Mario's mode and coins, kill counters, level counters, creature physics) lives on the scene
+ * and its sprites.
+ * <br/><br/>
+ * Instances do not share any mutable state, so many of them can run concurrently within one JVM as long as
+ * each instance is driven by a single thread at a time. Results are the same as if the episodes ran one after another.
+ * <br/><br/>
+ * Only one instance at a time should be visualized, as there is a single {@link engine.graphics.VisualizationComponent}.
+ */
+public class SimulationInstance {
+
+	private final MarioOptions options;
+
+	private final MarioEnvironment environment;
+
+	public SimulationInstance(String... options) {
+		this(MarioOptions.create(options));
+	}
+
+	public SimulationInstance(MarioOptions options) {
+		this.options = options;
+		this.environment = new MarioEnvironment();
+	}
+
+	public MarioOptions getOptions() {
+		return options;
+	}
+
+	public MarioEnvironment getEnvironment() {
+		return environment;
+	}
+
+	public LevelScene getLevelScene() {
+		return environment.getLevelScene();
+	}
+
+	/**
+	 * Generates a fresh level according to instance options and binds 'agent' to the environment.
+	 * @param agent
+	 */
+	public void reset(IAgent agent) {
+		MarioOptions previous = MarioOptions.bind(options);
+		try {
+			if (VisualizationOptions.isVisualization()) {
+				// visualized run, propagate options into SimulatorOptions the window and keyboard toggles work with
+				MarioOptions.reset();
+			}
+			environment.reset(agent);
+		} finally {
+			MarioOptions.bind(previous);
+		}
+	}
+
+	/**
+	 * Runs one episode of 'agent' until the level is finished.
+	 * @param agent
+	 * @return evaluation of the episode; a private copy, the caller may keep it
+	 */
+	public EvaluationInfo run(IAgent agent) {
+		if (agent == null) {
+			MarioLog.error("[SimulationInstance] agent is NULL! Aborting!");
+			throw new RuntimeException("Agent is NULL! Please specify correct agent to run within the simulator.");
+		}
+
+		MarioOptions previous = MarioOptions.bind(options);
+		try {
+			reset(agent);
+
+			// initial observation, needed since environment.tick() might call debugDraw()
+			agent.observe(environment);
+
+			while (!environment.isLevelFinished()) {
+				// UPDATE THE ENVIRONMENT
+				environment.tick();
+				// PUSH NEW PERCEPTS TO THE AGENT
+				agent.observe(environment);
+				// LET AGENT PERFORM ITS ACTION-SELECTION
+				MarioInput actions = agent.actionSelection();
+				// PROPAGATE ACTIONS TO THE ENVIRONMENT
+				environment.performAction(actions);
+			}
+		} finally {
+			MarioOptions.bind(previous);
+		}
+
+		return environment.getEvaluationInfo().clone(); // evaluation info is reused by the environment
+	}
+
+}
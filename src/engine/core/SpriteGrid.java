@@ -0,0 +1,106 @@
+package engine.core;
+
+import java.util.Arrays;
+import java.util.List;
+
+import engine.sprites.Sprite;
+
+/**
+ * Broad phase for sprite-vs-sprite checks: sprites bucketed by the level column ({@link LevelScene#cellSize} pixels)
+ * they stand in, stored as one array of sprite indices sorted by column.
+ * <br/><br/>
+ * Shell and fireball checks only ever hit sprites closer than one cell horizontally, so the column of the shell or
+ * fireball and its two neighbours hold all candidates. Columns are few cells tall (the whole level height), which
+ * keeps the grid one-dimensional. Candidates come back in the order of the sprite list, so collisions have their
+ * side effects in the same order as with a full scan.
+ * <br/><br/>
+ * The grid is a snapshot: it has to be rebuilt after sprites move.
+ */
+public class SpriteGrid {
+
+	private Sprite[] sprites = new Sprite[64];
+	private int size;
+
+	private int columns;
+	private int[] columnStart = new int[2];
+	private int[] cursor = new int[2];
+	private int[] spriteColumn = new int[64];
+	private int[] entries = new int[64];
+
+	private int[] candidates = new int[64];
+
+	/**
+	 * Rebuilds the grid from current positions of 'sprites'.
+	 * @param columns level length in cells; sprites outside the level fall into the border columns
+	 */
+	public void build(List<Sprite> sprites, int columns) {
+		size = sprites.size();
+		if (this.sprites.length < size) {
+			int capacity = Math.max(size, 2 * this.sprites.length);
+			this.sprites = new Sprite[capacity];
+			spriteColumn = new int[capacity];
+			entries = new int[capacity];
+			candidates = new int[capacity];
+		}
+		this.columns = Math.max(columns, 1);
+		reserve(this.columns);
+		Arrays.fill(columnStart, 0, this.columns + 1, 0);
+
+		for (int i = 0; i < size; ++i) {
+			Sprite sprite = sprites.get(i);
+			this.sprites[i] = sprite;
+			int column = column(sprite.x);
+			spriteColumn[i] = column;
+			++columnStart[column + 1];
+		}
+		for (int c = 0; c < this.columns; ++c) {
+			columnStart[c + 1] += columnStart[c];
+		}
+		System.arraycopy(columnStart, 0, cursor, 0, this.columns);
+		for (int i = 0; i < size; ++i) {
+			entries[cursor[spriteColumn[i]]++] = i;
+		}
+	}
+
+	/**
+	 * Collects sprites standing less than one cell horizontally from 'x'; read them via {@link #getCandidate(int)}.
+	 * @return number of candidates
+	 */
+	public int query(float x) {
+		int column = column(x);
+		int from = columnStart[Math.max(column - 1, 0)];
+		int to = columnStart[Math.min(column + 1, columns - 1) + 1];
+		int count = to - from;
+		System.arraycopy(entries, from, candidates, 0, count);
+		Arrays.sort(candidates, 0, count);
+		return count;
+	}
+
+	public Sprite getCandidate(int index) {
+		return sprites[candidates[index]];
+	}
+
+	/**
+	 * Sizes the column arrays for a level 'columns' cells long up front, so that later builds for that level do not allocate them.
+	 */
+	public void reserve(int columns) {
+		if (columnStart.length < columns + 1) {
+			columnStart = new int[columns + 1];
+			cursor = new int[columns + 1];
+		}
+	}
+
+	/**
+	 * Drops references to sprites so that removed ones can be collected.
+	 */
+	public void clear() {
+		Arrays.fill(sprites, 0, size, null);
+		size = 0;
+	}
+
+	private int column(float x) {
+		int column = (int) Math.floor(x / LevelScene.cellSize);
+		return column < 0 ? 0 : (column >= columns ? columns - 1 : column);
+	}
+
+}
@@ -37,6 +37,24 @@ import engine.helper.MarioLog;
  */
 public class TileGeneralizer {
 
+	public static final int Z_LEVELS = 3;
+
+	/** TABLE[zLevel][el &amp; 0xff] is the generalized tile, precomputed by {@link #interpret(byte, int)}. */
+	private static final Tile[][] TABLE = new Tile[Z_LEVELS][256];
+
+	/** Whether 'el' is a tile {@link #interpret(byte, int)} knows, unknown ones are reported when met. */
+	private static final boolean[][] KNOWN = new boolean[Z_LEVELS][256];
+
+	static {
+		for (int zLevel = 0; zLevel < Z_LEVELS; ++zLevel) {
+			for (int i = 0; i < 256; ++i) {
+				Tile tile = interpret((byte) i, zLevel);
+				KNOWN[zLevel][i] = tile != null;
+				TABLE[zLevel][i] = tile == null ? Tile.SOMETHING : tile;
+			}
+		}
+	}
+
 	/**
 	 * Generalize tile type 'el' according to the generalization 'zLevel'. 
 	 * 
@@ -45,6 +63,22 @@ public class TileGeneralizer {
 	 * @return
 	 */
 	public static Tile generalize(byte el, int zLevel) {
+		if (el == 0)
+			return Tile.NOTHING;
+		if (zLevel < 0 || zLevel >= Z_LEVELS) {
+			MarioLog.error("Unkown ZLevel Z" + zLevel);
+			throw new RuntimeException("Invalid ZLevel[" + zLevel + "], a tile cannot be interpreted. Have you correctly set up your zLevel for the scene in your agent?");
+		}
+		if (!KNOWN[zLevel][el & 0xff]) {
+			MarioLog.error("GeneralizerLevelScene.generalize(el=" + el + ", zLevel=" + zLevel + "): Unknown value el = " + el + ". Possible Level tiles bug!");
+		}
+		return TABLE[zLevel][el & 0xff];
+	}
+
+	/**
+	 * @return generalized tile, null if 'el' is not a known tile for 'zLevel' (it is generalized to {@link Tile#SOMETHING} then)
+	 */
+	private static Tile interpret(byte el, int zLevel) {
 		if (el == 0)
 			return Tile.NOTHING;
 		switch (zLevel) {
@@ -180,8 +214,7 @@ public class TileGeneralizer {
 			case (-1):
 				return Tile.PRINCESS;
 			}
-			MarioLog.error("GeneralizerLevelScene.generalize(el=" + el + ", zLevel=" + zLevel + "): Unknown value el = " + el + ". Possible Level tiles bug!");
-			return Tile.SOMETHING; // everything else is "something", so it is 1
+			return null; // everything else is "something", so it is 1, but this should not happen
 		case (2):
 			switch (el) {
 			// cancel out half-borders, that could be passed through
@@ -216,8 +249,6 @@ public class TileGeneralizer {
 			}
 			return Tile.SOMETHING; // everything else is "something", so it is 1
 		}
-		MarioLog.error("Unkown ZLevel Z" + zLevel);
-		
-		throw new RuntimeException("Invalid ZLevel[" + zLevel + "], a tile cannot be interpreted. Have you correctly set up your zLevel for the scene in your agent?");
+		return null;
 	}
 }
@@ -0,0 +1,110 @@
+package engine.core;
+
+import engine.level.Level;
+
+/**
+ * Generalized tiles ({@link TileGeneralizer}) of a rectangle of the level that follows Mario, kept up to date incrementally:
+ * the rectangle is a ring buffer indexed by level coordinates modulo its size, so moving it re-reads only the columns / rows
+ * that came into view and blocks changed by {@link Level#setBlock(int, int, byte)} are patched from {@link Level#getChangeCount()}.
+ * Everything is re-read only for a new level, a new z-level or after more than {@link Level#CHANGE_LOG_SIZE} changes at once.
+ * <br/><br/>
+ * Cells outside of the level are {@link Tile#NOTHING}.
+ */
+public class TileWindow {
+
+	private static final byte NOTHING = (byte) Tile.NOTHING.ordinal();
+
+	private final int width;
+	private final int height;
+
+	/** Tile ordinal of level cell (x, y) is at ring[floorMod(y, height) * width + floorMod(x, width)]. */
+	private final byte[] ring;
+
+	private Level level;
+	private int zLevel;
+	private int left;
+	private int top;
+	private long seenChanges;
+
+	public TileWindow(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.ring = new byte[width * height];
+	}
+
+	/**
+	 * Moves the window so that its top-left cell is the level cell ('left', 'top') and brings it up to date with 'level'.
+	 */
+	public void update(Level level, int left, int top, int zLevel) {
+		long changes = level.getChangeCount();
+		if (level != this.level || zLevel != this.zLevel || changes - seenChanges > Level.CHANGE_LOG_SIZE
+				|| Math.abs(left - this.left) >= width || Math.abs(top - this.top) >= height) {
+			this.level = level;
+			this.zLevel = zLevel;
+			this.left = left;
+			this.top = top;
+			readColumns(left, left + width);
+			seenChanges = changes;
+			return;
+		}
+
+		if (left != this.left) {
+			int from = left > this.left ? this.left + width : left;
+			int to = left > this.left ? left + width : this.left;
+			this.left = left;
+			readColumns(from, to);
+		}
+		if (top != this.top) {
+			int from = top > this.top ? this.top + height : top;
+			int to = top > this.top ? top + height : this.top;
+			this.top = top;
+			readRows(from, to);
+		}
+		for (; seenChanges < changes; ++seenChanges) {
+			int cell = level.getChangedCell(seenChanges);
+			int x = cell / level.height;
+			int y = cell % level.height;
+			if (x >= left && x < left + width && y >= top && y < top + height) {
+				read(x, y);
+			}
+		}
+	}
+
+	/**
+	 * Writes the window in [row][col] manner into 'tiles' starting at 'offset'.
+	 */
+	public void copyTo(byte[] tiles, int offset) {
+		int col = Math.floorMod(left, width);
+		for (int row = 0; row < height; ++row) {
+			int from = Math.floorMod(top + row, height) * width;
+			int to = offset + row * width;
+			System.arraycopy(ring, from + col, tiles, to, width - col);
+			System.arraycopy(ring, from, tiles, to + width - col, col);
+		}
+	}
+
+	private void readColumns(int from, int to) {
+		for (int x = from; x < to; ++x) {
+			for (int y = top; y < top + height; ++y) {
+				read(x, y);
+			}
+		}
+	}
+
+	private void readRows(int from, int to) {
+		for (int y = from; y < to; ++y) {
+			for (int x = left; x < left + width; ++x) {
+				read(x, y);
+			}
+		}
+	}
+
+	private void read(int x, int y) {
+		byte tile = NOTHING;
+		if (x >= 0 && x < level.length && y >= 0 && y < level.height) {
+			tile = (byte) TileGeneralizer.generalize(level.map[x][y], zLevel).ordinal();
+		}
+		ring[Math.floorMod(y, height) * width + Math.floorMod(x, width)] = tile;
+	}
+
+}
@@ -0,0 +1,104 @@
+package engine.core;
+
+import java.util.Arrays;
+
+import engine.helper.FastRandom;
+import engine.helper.MarioLog;
+import engine.input.MarioInput;
+
+/**
+ * Bounded cache of known transitions for search agents: (state hash, action) -&gt; successor, where the state hash is
+ * {@link LevelScene#getStateHash()} and the successor is the {@link ForwardModel.Result} of performing the action from that state.
+ * A planner looks a transition up before simulating it and stores it afterwards, so states it keeps revisiting
+ * (standing still, bouncing off walls) are simulated only once.
+ * <br/><br/>
+ * Fixed number of slots, a new entry replaces the one in its slot; no allocation after construction except the stored results.
+ * It is up to the agent what a transition is (one tick, the same action for several ticks...), but it must be the same for the whole cache
+ * and shorter than {@link LevelScene#TIME_LEFT_HORIZON} ticks.
+ * <br/><br/>
+ * Hashes are comparable only within one level, use one cache per episode; it is not thread-safe, use one per search thread.
+ */
+public final class TranspositionCache {
+
+	private final long[] hashes;
+	private final int[] masks;
+	private final ForwardModel.Result[] successors;
+	private final int slotMask;
+
+	private int size;
+	private long hits;
+	private long misses;
+
+	/**
+	 * @param capacity number of slots, rounded up to a power of two
+	 */
+	public TranspositionCache(int capacity) {
+		if (capacity <= 0 || capacity > 1 << 30) {
+			MarioLog.error("TranspositionCache: invalid capacity " + capacity + ".");
+			throw new RuntimeException("Invalid transposition cache capacity " + capacity + ".");
+		}
+		int slots = Integer.highestOneBit(capacity);
+		if (slots < capacity)
+			slots <<= 1;
+		hashes = new long[slots];
+		masks = new int[slots];
+		successors = new ForwardModel.Result[slots];
+		slotMask = slots - 1;
+	}
+
+	/**
+	 * Successor of performing 'action' in the state with 'stateHash', null if not known.
+	 */
+	public ForwardModel.Result get(long stateHash, MarioInput action) {
+		int slot = slot(stateHash, action.getMask());
+		if (successors[slot] != null && hashes[slot] == stateHash && masks[slot] == action.getMask()) {
+			++hits;
+			return successors[slot];
+		}
+		++misses;
+		return null;
+	}
+
+	/**
+	 * Remembers that performing 'action' in the state with 'stateHash' leads to 'successor'.
+	 */
+	public void put(long stateHash, MarioInput action, ForwardModel.Result successor) {
+		int slot = slot(stateHash, action.getMask());
+		if (successors[slot] == null)
+			++size;
+		hashes[slot] = stateHash;
+		masks[slot] = action.getMask();
+		successors[slot] = successor;
+	}
+
+	public void clear() {
+		Arrays.fill(successors, null);
+		size = 0;
+		hits = 0;
+		misses = 0;
+	}
+
+	/**
+	 * Number of occupied slots.
+	 */
+	public int size() {
+		return size;
+	}
+
+	public int getCapacity() {
+		return successors.length;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	private int slot(long stateHash, int mask) {
+		return (int) FastRandom.mix(stateHash + mask) & slotMask;
+	}
+
+}
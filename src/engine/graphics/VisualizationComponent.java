@@ -110,6 +110,9 @@ public class VisualizationComponent extends JComponent {
 		if (marioVisualComponent == null) {
 			marioVisualComponent = new VisualizationComponent(marioEnvironment);
 			marioVisualComponent.CreateMarioComponentFrame(marioVisualComponent);
+		} else {
+			// single window, shown for whichever environment is visualized right now
+			marioVisualComponent.marioEnvironment = marioEnvironment;
 		}
 		return marioVisualComponent;
 	}
@@ -249,10 +252,10 @@ public class VisualizationComponent extends JComponent {
         drawStringDropShadow(g, scoreString, 0, 1, 2);
 
 		g.drawImage(Art.level[0][2], 122, 10, 10, 10, null);
-		drawStringDropShadow(g, "x" + df.format(Mario.coins), 16, 1, 4);
+		drawStringDropShadow(g, "x" + df.format(marioEnvironment.getMarioSprite().coins), 16, 1, 4);
 
 		g.drawImage(Art.items[1][0], 164, 10, 11, 11, null);
-		drawStringDropShadow(g, "x" + df.format(Mario.flowersDevoured), 22, 1,
+		drawStringDropShadow(g, "x" + df.format(marioEnvironment.getMarioSprite().flowersDevoured), 22, 1,
 				4);
 
 		if (SimulatorOptions.isRecording) {
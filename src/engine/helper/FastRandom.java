@@ -0,0 +1,85 @@
+package engine.helper;
+
+/**
+ * Small, fast and unsynchronized pseudo-random generator (xorshift64*), one per scene, see {@link engine.sprites.SpriteContext#getRandom()}.
+ * <br/><br/>
+ * Unlike {@link Math#random()} it is not shared among threads, so parallel simulations do not contend for it, and it is seeded
+ * explicitly, so a scene replays the same way from the same seed. Its whole state is one long, see {@link #getState()}.
+ */
+public final class FastRandom {
+
+	private static final double DOUBLE_UNIT = 1.0 / (1L << 53);
+	private static final float FLOAT_UNIT = 1.0f / (1 << 24);
+
+	private long state;
+
+	public FastRandom(long seed) {
+		setSeed(seed);
+	}
+
+	/**
+	 * Restarts the sequence; seeds are scrambled (splitmix64), so consecutive seeds give unrelated sequences.
+	 */
+	public void setSeed(long seed) {
+		long z = mix(seed);
+		state = z != 0 ? z : 0x9E3779B97F4A7C15L; // xorshift must not start from 0
+	}
+
+	/**
+	 * Scrambles 'value' (splitmix64): close values give unrelated results. Used to derive hash keys, e.g., {@link engine.level.Level#getCellHash()}.
+	 */
+	public static long mix(long value) {
+		long z = value + 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Current position in the sequence, restore it via {@link #setState(long)}.
+	 */
+	public long getState() {
+		return state;
+	}
+
+	public void setState(long state) {
+		if (state == 0) {
+			MarioLog.error("FastRandom.setState(): state must not be 0.");
+			throw new RuntimeException("Invalid FastRandom state 0.");
+		}
+		this.state = state;
+	}
+
+	public long nextLong() {
+		state ^= state >>> 12;
+		state ^= state << 25;
+		state ^= state >>> 27;
+		return state * 0x2545F4914F6CDD1DL;
+	}
+
+	/**
+	 * Uniform int in [0, 'bound').
+	 */
+	public int nextInt(int bound) {
+		if (bound <= 0) {
+			MarioLog.error("FastRandom.nextInt(): bound must be positive, got " + bound);
+			throw new RuntimeException("Invalid bound " + bound + ".");
+		}
+		return (int) (((nextLong() >>> 32) * bound) >>> 32);
+	}
+
+	/**
+	 * Uniform double in [0, 1).
+	 */
+	public double nextDouble() {
+		return (nextLong() >>> 11) * DOUBLE_UNIT;
+	}
+
+	/**
+	 * Uniform float in [0, 1).
+	 */
+	public float nextFloat() {
+		return (nextLong() >>> 40) * FLOAT_UNIT;
+	}
+
+}
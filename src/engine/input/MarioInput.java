@@ -1,67 +1,177 @@
 package engine.input;
 
-import java.util.Comparator;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.Set;
-import java.util.TreeSet;
 
 /**
  * Used by {@link IAgent} to represent the state of pressed key by the agent.
- * 
+ * <br/><br/>
+ * Pressed keys are a bitmask: bit 'k' is the {@link MarioKey} with code 'k'. All {@link #ACTION_COUNT} combinations of keys
+ * are interned as immutable instances, see {@link #valueOf(int)}; agents choosing among fixed actions can return those
+ * instead of creating a new input every tick.
+ *
  * @author Jakub 'Jimmy' Gemrot, gemrot@gamedev.cuni.cz
  */
 public class MarioInput {
-	private TreeSet<MarioKey> pressed = new TreeSet<MarioKey>(new Comparator<MarioKey>() {
-		@Override
-		public int compare(MarioKey o1, MarioKey o2) {
-			return o1.getCode() - o2.getCode();
-		}		
-    });
-    
-    public MarioInput clone() {
-        MarioInput i = new MarioInput();
-
-        @SuppressWarnings("unchecked")
-        TreeSet<MarioKey> t = (TreeSet<MarioKey>) pressed.clone();
-
-        i.pressed = t;
-        return i;
-    }
-	
+
+	/** Number of distinct inputs, i.e., all combinations of {@link MarioKey#numberOfKeys} keys. */
+	public static final int ACTION_COUNT = 1 << MarioKey.numberOfKeys;
+
+	private static final MarioInput[] VALUES = new MarioInput[ACTION_COUNT];
+
+	/** Result of {@link #getPressed()} for every mask, keys ordered by their codes. */
+	private static final Set<MarioKey>[] PRESSED = pressedSets();
+
+	static {
+		for (int mask = 0; mask < ACTION_COUNT; ++mask) {
+			VALUES[mask] = new MarioInput(mask, true);
+		}
+	}
+
+	private int mask;
+
+	private final boolean immutable;
+
+	public MarioInput() {
+		this(0, false);
+	}
+
+	private MarioInput(int mask, boolean immutable) {
+		this.mask = mask;
+		this.immutable = immutable;
+	}
+
+	/**
+	 * Immutable input pressing exactly the keys of 'mask' (bit 'k' = key with code 'k'); the same instance for the same mask.
+	 */
+	public static MarioInput valueOf(int mask) {
+		checkMask(mask);
+		return VALUES[mask];
+	}
+
+	/**
+	 * Returns modifiable copy of this input.
+	 */
+	public MarioInput clone() {
+		return new MarioInput(mask, false);
+	}
+
+	/**
+	 * Returns the interned immutable input with the same keys pressed, see {@link #valueOf(int)}.
+	 */
+	public MarioInput toImmutable() {
+		return VALUES[mask];
+	}
+
+	public boolean isImmutable() {
+		return immutable;
+	}
+
+	/**
+	 * Pressed keys as a bitmask, bit 'k' is the key with code 'k'.
+	 */
+	public int getMask() {
+		return mask;
+	}
+
+	/**
+	 * Presses exactly the keys of 'mask'.
+	 */
+	public void setMask(int mask) {
+		checkModifiable();
+		checkMask(mask);
+		this.mask = mask;
+	}
+
+	/**
+	 * Pressed keys ordered by their codes; the set is read-only and shared, it does not follow later changes of the input.
+	 */
 	public Set<MarioKey> getPressed() {
-		return pressed;
+		return PRESSED[mask];
 	}
-	
+
 	/**
 	 * PRESS given 'key' or keep pressed if already pressed.
 	 * @param key
 	 */
 	public void press(MarioKey key) {
-		pressed.add(key);		
+		checkModifiable();
+		mask |= bit(key);
 	}
-	
+
 	/**
 	 * RELEASE given 'key'.
 	 * @param key
 	 */
 	public void release(MarioKey key) {
-		if (!pressed.contains(key)) return;
-		pressed.remove(key);
+		checkModifiable();
+		mask &= ~bit(key);
 	}
-	
+
 	/**
 	 * Whether 'key' is PRESSED.
 	 * @param key
 	 * @return
 	 */
 	public boolean isPressed(MarioKey key) {
-		return pressed.contains(key);
+		int code = key.getCode();
+		return code >= 0 && code < MarioKey.numberOfKeys && (mask & (1 << code)) != 0;
 	}
-	
+
 	/**
 	 * Completely resets the instance.
 	 */
 	public void reset() {
-		pressed.clear();
+		checkModifiable();
+		mask = 0;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof MarioInput && ((MarioInput) obj).mask == mask;
 	}
-	
+
+	@Override
+	public int hashCode() {
+		return mask;
+	}
+
+	@Override
+	public String toString() {
+		return getPressed().toString();
+	}
+
+	private void checkModifiable() {
+		if (immutable) {
+			throw new UnsupportedOperationException("Input " + this + " is immutable, use clone() to get a modifiable copy.");
+		}
+	}
+
+	private static void checkMask(int mask) {
+		if (mask < 0 || mask >= ACTION_COUNT) {
+			throw new IllegalArgumentException("Invalid key mask " + mask + ", must be within [0, " + ACTION_COUNT + ").");
+		}
+	}
+
+	private static int bit(MarioKey key) {
+		if (key.getCode() < 0 || key.getCode() >= MarioKey.numberOfKeys) {
+			throw new IllegalArgumentException("Invalid key " + key + " with code " + key.getCode() + ".");
+		}
+		return 1 << key.getCode();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Set<MarioKey>[] pressedSets() {
+		Set<MarioKey>[] sets = (Set<MarioKey>[]) new Set<?>[ACTION_COUNT];
+		for (int mask = 0; mask < ACTION_COUNT; ++mask) {
+			Set<MarioKey> keys = new LinkedHashSet<MarioKey>();
+			for (int code = 0; code < MarioKey.numberOfKeys; ++code) {
+				if ((mask & (1 << code)) != 0) keys.add(MarioKey.getMarioKey(code));
+			}
+			sets[mask] = Collections.unmodifiableSet(keys);
+		}
+		return sets;
+	}
+
 }
@@ -51,7 +51,7 @@ public class MarioKeyboard implements KeyListener {
 
 	public MarioInput getInput() {
         synchronized (input) {
-            return input.clone();
+            return input.toImmutable();
         }
 	}
 	
@@ -27,16 +27,19 @@
 
 package engine.level;
 
-import options.LevelOptions;
+import options.LevelGeneratorOptions;
 
 import java.io.*;
+import java.util.Arrays;
+import java.util.BitSet;
 
+import engine.helper.FastRandom;
 import engine.helper.MarioLog;
 
 public class Level implements Serializable {
 	private static final long serialVersionUID = -2222762134065697580L;
 
-	static public class objCounters implements Serializable {
+	static public class objCounters implements Serializable, Cloneable {
 		public int deadEndsCount = 0;
 		public int cannonsCount = 0;
 		public int platformCount = 0;
@@ -64,6 +67,10 @@ public class Level implements Serializable {
 		private static final long serialVersionUID = 4505050755444159808L;
 
 		public void reset() {
+			reset(LevelGeneratorOptions.current());
+		}
+
+		public void reset(LevelGeneratorOptions options) {
 			deadEndsCount = 0;
 			cannonsCount = 0;
 			platformCount = 0;
@@ -76,14 +83,14 @@ public class Level implements Serializable {
 			flowers = 0;
 			creatures = 0;
 			greenMushrooms = 0;
-			totalHillStraight = LevelOptions.isHillStraight() ? Integer.MAX_VALUE	: 0;
-			totalCannons      = LevelOptions.isCannons() ? Integer.MAX_VALUE : 0;
-			totalGaps         = LevelOptions.isGaps() ? Integer.MAX_VALUE : 0;
-			totalDeadEnds     = LevelOptions.isDeadEnds() ? Integer.MAX_VALUE : 0;
-			totalBlocks       = LevelOptions.isBlocks() ? Integer.MAX_VALUE : 0;
-			totalHiddenBlocks = LevelOptions.isHiddenBlocks() ? Integer.MAX_VALUE : 0;
-			totalCoins        = LevelOptions.isCoins() ? Integer.MAX_VALUE : 0;
-			totalTubes        = LevelOptions.isTubes() ? Integer.MAX_VALUE : 0;
+			totalHillStraight = options.isHillStraight() ? Integer.MAX_VALUE	: 0;
+			totalCannons      = options.isCannons() ? Integer.MAX_VALUE : 0;
+			totalGaps         = options.isGaps() ? Integer.MAX_VALUE : 0;
+			totalDeadEnds     = options.isDeadEnds() ? Integer.MAX_VALUE : 0;
+			totalBlocks       = options.isBlocks() ? Integer.MAX_VALUE : 0;
+			totalHiddenBlocks = options.isHiddenBlocks() ? Integer.MAX_VALUE : 0;
+			totalCoins        = options.isCoins() ? Integer.MAX_VALUE : 0;
+			totalTubes        = options.isTubes() ? Integer.MAX_VALUE : 0;
 			resetUncountableCounters();
 		}
 
@@ -92,6 +99,14 @@ public class Level implements Serializable {
 			flowers = 0;
 			greenMushrooms = 0;
 		}
+
+		public objCounters copy() {
+			try {
+				return (objCounters) clone();
+			} catch (CloneNotSupportedException e) {
+				throw new RuntimeException("Level counters cannot be copied.", e);
+			}
+		}
 	}
 
 	public static final String[] BIT_DESCRIPTIONS = {//
@@ -116,7 +131,8 @@ public class Level implements Serializable {
 	public static final int BIT_PICKUPABLE = 1 << 6;
 	public static final int BIT_ANIMATED = 1 << 7;
 
-	public static objCounters counters;
+	// serialized explicitly in writeObject() to keep the stream format of older levels
+	public transient objCounters counters;
 
 	public int length;
 	public int height;
@@ -129,6 +145,35 @@ public class Level implements Serializable {
 
 	public SpriteTemplate[][] spriteTemplates;
 
+	// cells with a running bump animation (data > 0) as x * height + y, so that tick() does not scan the whole level;
+	// rebuilt from data in readObject()
+	private transient int[] animated;
+	private transient int animatedCount;
+	private transient BitSet animatedCells;
+
+	/** How many of the latest {@link #setBlock(int, int, byte)} calls are remembered, see {@link #getChangedCell(long)}. */
+	public static final int CHANGE_LOG_SIZE = 64;
+
+	// cells written by setBlock() as x * height + y, change 'i' is at changeLog[i % CHANGE_LOG_SIZE];
+	// lets observers keeping a copy of part of the map patch it instead of re-reading it every tick
+	private transient int[] changeLog;
+	private transient long changeCount;
+
+	// Zobrist-style hash of map and data cells changed since generation, see getCellHash()
+	private transient long cellHash;
+
+	// map and data columns are copy-on-write as they are shared with saved states (see saveState()):
+	// column x may be written in place only if columnEpoch[x] == epoch, saving a state just bumps the epoch
+	private transient int[] columnEpoch;
+	private transient int epoch;
+
+	// all sprite templates (see SpriteTemplate.index) and their cells as x * height + y, collected by saveState()
+	private transient SpriteTemplate[] templates;
+	private transient int[] templateCells;
+
+	// level this one was forked from (see fork()), null for an original level
+	private transient Level origin;
+
 	public int xExit;
 	public int yExit;
 
@@ -142,6 +187,10 @@ public class Level implements Serializable {
 			map = new byte[length][height];
 			data = new byte[length][height];
 			spriteTemplates = new SpriteTemplate[length][height];
+			animated = new int[16];
+			animatedCells = new BitSet(length * height);
+			changeLog = new int[CHANGE_LOG_SIZE];
+			columnEpoch = new int[length];
 		} catch (OutOfMemoryError e) {
 			MarioLog.error("Java: MarioAI MEMORY EXCEPTION: OutOfMemory exception. Exiting...");
 			e.printStackTrace();
@@ -157,12 +206,18 @@ public class Level implements Serializable {
 		dos.write(Level.TILE_BEHAVIORS);
 	}
 
+	/**
+	 * Reads a level saved by {@link #save(Level, ObjectOutputStream)}, the old format; new levels are saved by {@link LevelFormat}.
+	 */
 	public static Level load(ObjectInputStream ois) throws IOException,
 			ClassNotFoundException {
 		Level level = (Level) ois.readObject();
 		return level;
 	}
 
+	/**
+	 * Saves the level by Java serialization, the old format; prefer {@link LevelFormat#save(Level, String)}.
+	 */
 	public static void save(Level lvl, ObjectOutputStream oos)
 			throws IOException {
 		oos.writeObject(lvl);
@@ -172,11 +227,35 @@ public class Level implements Serializable {
 	 * Animates the unbreakable brick when smashed from below by Mario
 	 */
 	public void tick() {
-		// TODO:!!H! Optimize this!
-		for (int x = 0; x < length; x++)
-			for (int y = 0; y < height; y++)
-				if (data[x][y] > 0)
-					data[x][y]--;
+		for (int i = 0; i < animatedCount;) {
+			int cell = animated[i];
+			int x = cell / height;
+			int y = cell % height;
+			if (data[x][y] > 0) {
+				own(x);
+				cellHash ^= cellKey(cell, 1, data[x][y]) ^ cellKey(cell, 1, data[x][y] - 1);
+				data[x][y]--;
+			}
+			if (data[x][y] > 0) {
+				++i;
+			} else {
+				animatedCells.clear(cell);
+				animated[i] = animated[--animatedCount];
+			}
+		}
+	}
+
+	private void markAnimated(int x, int y) {
+		markAnimated(x * height + y);
+	}
+
+	private void markAnimated(int cell) {
+		if (animatedCells.get(cell))
+			return;
+		animatedCells.set(cell);
+		if (animatedCount == animated.length)
+			animated = Arrays.copyOf(animated, 2 * animated.length);
+		animated[animatedCount++] = cell;
 	}
 
 	public byte getBlockCapped(int x, int y) {
@@ -206,13 +285,58 @@ public class Level implements Serializable {
 	public void setBlock(int x, int y, byte b) {
 		if (x < 0 || y < 0 || x >= length || y >= height)
 			return;
+		own(x);
+		cellHash ^= cellKey(x * height + y, 0, map[x][y]) ^ cellKey(x * height + y, 0, b);
 		map[x][y] = b;
+		changeLog[(int) (changeCount++ % CHANGE_LOG_SIZE)] = x * height + y;
+	}
+
+	/**
+	 * Number of {@link #setBlock(int, int, byte)} calls so far; writes straight into {@link #map} are not counted.
+	 */
+	public long getChangeCount() {
+		return changeCount;
+	}
+
+	/**
+	 * Cell written by the 'change'-th {@link #setBlock(int, int, byte)} call as x * height + y;
+	 * only the last {@link #CHANGE_LOG_SIZE} changes are remembered, i.e., 'change' must be at least getChangeCount() - CHANGE_LOG_SIZE.
+	 */
+	public int getChangedCell(long change) {
+		return changeLog[(int) (change % CHANGE_LOG_SIZE)];
+	}
+
+	/**
+	 * 64-bit hash of all {@link #setBlock(int, int, byte)} and {@link #setBlockData(int, int, byte)} changes made to the level
+	 * (including bump animations), maintained incrementally; 0 for a freshly generated level, equal for levels with equal blocks.
+	 */
+	public long getCellHash() {
+		return cellHash;
+	}
+
+	/**
+	 * Makes the current blocks the baseline of {@link #getCellHash()} and {@link #getChangeCount()}; called once the level is generated.
+	 */
+	void clearChanges() {
+		cellHash = 0;
+		changeCount = 0;
+	}
+
+	/**
+	 * Zobrist key of 'cell' (x * height + y) of 'layer' (0 = map, 1 = data) holding 'value'.
+	 */
+	private static long cellKey(int cell, int layer, int value) {
+		return FastRandom.mix(((long) cell << 9) | (layer << 8) | (value & 0xff));
 	}
 
 	public void setBlockData(int x, int y, byte b) {
 		if (x < 0 || y < 0 || x >= length || y >= height)
 			return;
+		own(x);
+		cellHash ^= cellKey(x * height + y, 1, data[x][y]) ^ cellKey(x * height + y, 1, b);
 		data[x][y] = b;
+		if (b > 0)
+			markAnimated(x, y);
 	}
 
 	public byte getBlockData(int x, int y) {
@@ -242,13 +366,200 @@ public class Level implements Serializable {
 		if (x < 0 || y < 0 || x >= length || y >= height)
 			return false;
 		spriteTemplates[x][y] = spriteTemplate;
+		templates = null;
 		return true;
 	}
 
+	/**
+	 * Makes column 'x' of {@link #map} and {@link #data} private to this level before it is written.
+	 */
+	private void own(int x) {
+		if (columnEpoch[x] != epoch) {
+			map[x] = map[x].clone();
+			data[x] = data[x].clone();
+			columnEpoch[x] = epoch;
+		}
+	}
+
+	/**
+	 * The original level this one was forked from, or this level if it is an original.
+	 */
+	public Level getOrigin() {
+		return origin != null ? origin : this;
+	}
+
+	/**
+	 * Number of sprite templates, valid after the first {@link #saveState()}.
+	 */
+	public int getTemplateCount() {
+		return templates.length;
+	}
+
+	/**
+	 * Sprite template with the given {@link SpriteTemplate#getIndex()}, valid after the first {@link #saveState()}.
+	 */
+	public SpriteTemplate getTemplate(int index) {
+		return templates[index];
+	}
+
+	private void collectTemplates() {
+		if (templates != null)
+			return;
+		int count = 0;
+		for (int x = 0; x < length; x++)
+			for (int y = 0; y < height; y++)
+				if (spriteTemplates[x][y] != null)
+					count++;
+		templates = new SpriteTemplate[count];
+		templateCells = new int[count];
+		count = 0;
+		for (int x = 0; x < length; x++)
+			for (int y = 0; y < height; y++)
+				if (spriteTemplates[x][y] != null) {
+					spriteTemplates[x][y].index = count;
+					templates[count] = spriteTemplates[x][y];
+					templateCells[count++] = x * height + y;
+				}
+	}
+
+	/**
+	 * Saves blocks, bump animations, counters and states of sprite templates; see {@link State}.
+	 * Costs O(length): {@link #map} and {@link #data} columns are shared with the state and copied only when this level writes them.
+	 * Sprites referenced by {@link SpriteTemplate#sprite} are not saved, that is up to the scene.
+	 */
+	public State saveState() {
+		collectTemplates();
+		++epoch;
+		return new State(this);
+	}
+
+	/**
+	 * Brings the level back to 'state', saved by this level or by another level with the same {@link #getOrigin()};
+	 * {@link SpriteTemplate#sprite} of all templates is cleared. Observers of {@link #getChangeCount()} have to re-read the whole map.
+	 */
+	public void restoreState(State state) {
+		collectTemplates();
+		if (state.origin != getOrigin() || state.templateLastVisibleTick.length != templates.length) {
+			MarioLog.error("Level.restoreState(): the state was saved by an unrelated level.");
+			throw new RuntimeException("Cannot restore the state of an unrelated level.");
+		}
+		map = state.map.clone();
+		data = state.data.clone();
+		++epoch;
+
+		for (int i = 0; i < animatedCount; i++)
+			animatedCells.clear(animated[i]);
+		animatedCount = 0;
+		for (int cell : state.animated)
+			markAnimated(cell);
+
+		counters = state.counters != null ? state.counters.copy() : null;
+
+		for (int i = 0; i < templates.length; i++) {
+			templates[i].lastVisibleTick = state.templateLastVisibleTick[i];
+			templates[i].isDead = state.templateDead[i];
+			templates[i].sprite = null;
+		}
+
+		cellHash = state.cellHash;
+		changeCount += CHANGE_LOG_SIZE + 1;
+	}
+
+	/**
+	 * New level in 'state' that shares nothing mutable with the levels the state came from, so that another scene
+	 * (possibly in another thread) can continue from it; later states can be restored into it via {@link #restoreState(State)}.
+	 */
+	public static Level fork(State state) {
+		Level level = new Level(state.origin);
+		level.restoreState(state);
+		return level;
+	}
+
+	private Level(Level origin) {
+		this.origin = origin;
+		length = origin.length;
+		height = origin.height;
+		randomSeed = origin.randomSeed;
+		type = origin.type;
+		difficulty = origin.difficulty;
+		xExit = origin.xExit;
+		yExit = origin.yExit;
+
+		map = new byte[length][];
+		data = new byte[length][];
+		spriteTemplates = new SpriteTemplate[length][height];
+		templates = new SpriteTemplate[origin.templates.length];
+		templateCells = origin.templateCells;
+		for (int i = 0; i < templates.length; i++) {
+			templates[i] = new SpriteTemplate(origin.templates[i]);
+			spriteTemplates[templateCells[i] / height][templateCells[i] % height] = templates[i];
+		}
+
+		animated = new int[16];
+		animatedCells = new BitSet(length * height);
+		changeLog = new int[CHANGE_LOG_SIZE];
+		columnEpoch = new int[length];
+	}
+
+	/**
+	 * Changeable part of a level saved by {@link Level#saveState()}. Immutable: it can be restored many times and from many threads.
+	 */
+	public static final class State {
+
+		private final Level origin;
+		private final byte[][] map;
+		private final byte[][] data;
+		private final int[] animated;
+		private final objCounters counters;
+		private final int[] templateLastVisibleTick;
+		private final boolean[] templateDead;
+		private final long cellHash;
+
+		private State(Level level) {
+			origin = level.getOrigin();
+			map = level.map.clone();
+			data = level.data.clone();
+			animated = Arrays.copyOf(level.animated, level.animatedCount);
+			counters = level.counters != null ? level.counters.copy() : null;
+			templateLastVisibleTick = new int[level.templates.length];
+			templateDead = new boolean[level.templates.length];
+			cellHash = level.cellHash;
+			for (int i = 0; i < level.templates.length; i++) {
+				templateLastVisibleTick[i] = level.templates[i].lastVisibleTick;
+				templateDead[i] = level.templates[i].isDead;
+			}
+		}
+
+		/**
+		 * The original level the state belongs to, see {@link Level#getOrigin()}.
+		 */
+		public Level getOrigin() {
+			return origin;
+		}
+
+	}
+
 	private void readObject(ObjectInputStream aInputStream)
 			throws ClassNotFoundException, IOException {
 		aInputStream.defaultReadObject();
 		counters = (Level.objCounters) aInputStream.readObject();
+		animated = new int[16];
+		animatedCount = 0;
+		animatedCells = new BitSet(length * height);
+		changeLog = new int[CHANGE_LOG_SIZE];
+		changeCount = 0;
+		columnEpoch = new int[length];
+		rebuildAnimated();
+	}
+
+	/**
+	 * Finds cells being animated after {@link #data} was filled in bypassing {@link #setBlockData(int, int, byte)}.
+	 */
+	void rebuildAnimated() {
+		for (int x = 0; x < length; x++)
+			for (int y = 0; y < height; y++)
+				if (data[x][y] > 0)
+					markAnimated(x, y);
 	}
 
 	private void writeObject(ObjectOutputStream aOutputStream)
@@ -0,0 +1,221 @@
+package engine.level;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import engine.helper.MarioLog;
+import options.LevelGeneratorOptions;
+import options.LevelOptions;
+import options.SystemOptions;
+
+/**
+ * Generated levels shared by all runs within the JVM, so that evaluating many agents on the same seeds generates every level only once.
+ * <br/><br/>
+ * Levels are keyed by {@link LevelGeneratorOptions#getKey()} and the seed. The cache keeps pristine levels that no run ever plays;
+ * every run gets its own {@link Level#fork(Level.State)}, which shares blocks with the pristine level until it changes them and
+ * has its own sprite templates and counters, so nothing a run does (broken bricks, killed enemies) leaks into another run.
+ * <br/><br/>
+ * Levels not cached yet are taken from the {@link LevelCorpus} given by {@link SystemOptions#getLevelCorpus()} if it has them,
+ * generated otherwise. A {@link LevelProducer} fills the cache ahead of the runs, see {@link #prefetch(Runnable)}.
+ * <br/><br/>
+ * Bounded by {@link SystemOptions#getLevelCacheSize()}, least recently used levels are evicted first. Thread-safe.
+ */
+public final class LevelCache {
+
+	private static final Map<String, Entry> levels = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+	private static long bytes;
+	private static long hits;
+	private static long misses;
+
+	/** Corpus files and generation keys we have already warned about not matching. */
+	private static final Set<String> mismatches = new HashSet<String>();
+
+	private LevelCache() {
+	}
+
+	/**
+	 * Level for the currently bound options, see {@link LevelGenerator#createLevel()}; levels loaded from a file and levels with
+	 * a random seed are not cached.
+	 */
+	public static Level createLevel() {
+		long capacity = SystemOptions.getLevelCacheSize() * 1024L * 1024L;
+		if (LevelOptions.isLevelFileName() || LevelOptions.getRandomSeed() < 0)
+			return new LevelGenerator().createLevel();
+		LevelGeneratorOptions options = LevelGeneratorOptions.current();
+		int seed = LevelOptions.getRandomSeed();
+		if (capacity <= 0)
+			return generate(options, seed);
+
+		String key = options.getKey() + " " + seed;
+		Entry entry;
+		Runnable onFirstUse = null;
+		synchronized (levels) {
+			entry = levels.get(key);
+			if (entry != null) {
+				++hits;
+				onFirstUse = entry.onFirstUse;
+				entry.onFirstUse = null;
+			} else
+				++misses;
+		}
+		if (onFirstUse != null)
+			onFirstUse.run();
+		if (entry == null) {
+			// generate outside of the lock, other threads keep using the cache meanwhile
+			entry = put(key, generate(options, seed), null, capacity);
+		}
+		return Level.fork(entry.state);
+	}
+
+	/**
+	 * Generates and caches the level for the currently bound options ahead of the run that will play it; 'onFirstUse' is run
+	 * once that level is taken by {@link #createLevel()} or evicted unused, or right away if a run cached the level meanwhile.
+	 * <br/><br/>
+	 * Returns false and does nothing if the level is not cacheable (see {@link #createLevel()}), the cache is disabled or
+	 * the level is cached already; 'onFirstUse' is not run then.
+	 */
+	public static boolean prefetch(Runnable onFirstUse) {
+		long capacity = SystemOptions.getLevelCacheSize() * 1024L * 1024L;
+		if (LevelOptions.isLevelFileName() || LevelOptions.getRandomSeed() < 0 || capacity <= 0)
+			return false;
+		LevelGeneratorOptions options = LevelGeneratorOptions.current();
+		int seed = LevelOptions.getRandomSeed();
+		String key = options.getKey() + " " + seed;
+		synchronized (levels) {
+			if (levels.containsKey(key))
+				return false;
+		}
+		put(key, generate(options, seed), onFirstUse, capacity);
+		return true;
+	}
+
+	/**
+	 * Caches 'pristine' under 'key' unless another thread cached that key meanwhile, in which case its entry is kept, as runs
+	 * may already play it. 'onFirstUse' is null when the caller takes the level right away, see {@link #prefetch(Runnable)};
+	 * every callback is run exactly once, possibly right here. Returns the cached entry.
+	 */
+	private static Entry put(String key, Level pristine, Runnable onFirstUse, long capacity) {
+		Entry entry = new Entry(pristine.saveState(), footprint(pristine));
+		entry.onFirstUse = onFirstUse;
+		List<Runnable> released = new ArrayList<Runnable>();
+		synchronized (levels) {
+			Entry existing = levels.get(key);
+			if (existing != null) {
+				if (onFirstUse != null) {
+					released.add(onFirstUse); // prefetched too late, nobody will take this one
+				} else if (existing.onFirstUse != null) {
+					released.add(existing.onFirstUse); // the caller takes the prefetched level now
+					existing.onFirstUse = null;
+				}
+				entry = existing;
+			} else {
+				levels.put(key, entry);
+				bytes += entry.bytes;
+				evict(capacity, released);
+			}
+		}
+		for (Runnable callback : released)
+			callback.run();
+		return entry;
+	}
+
+	/**
+	 * New level for 'options' and a non-negative 'seed', from the level corpus given by the bound options if it has it.
+	 */
+	private static Level generate(LevelGeneratorOptions options, int seed) {
+		if (SystemOptions.isLevelCorpus()) {
+			String path = SystemOptions.getLevelCorpus();
+			LevelCorpus corpus;
+			try {
+				corpus = LevelCorpus.open(path);
+			} catch (IOException e) {
+				MarioLog.error("[LevelCache] cannot open level corpus " + path + ": " + e.getMessage());
+				throw new RuntimeException("Cannot open level corpus " + path + ".", e);
+			}
+			String key = options.getKey();
+			if (corpus.contains(seed) && corpus.getGenerationKey().equals(key))
+				return corpus.getLevel(seed);
+			synchronized (mismatches) {
+				if (mismatches.add(path + " " + key))
+					MarioLog.warn("[LevelCache] level corpus " + path + " (seeds " + corpus.getFirstSeed() + " - " + (corpus.getFirstSeed() + corpus.size() - 1)
+							+ ", options " + corpus.getGenerationKey() + ") does not have levels for options " + key + ", generating them.");
+			}
+		}
+		return LevelGenerator.generate(options, seed);
+	}
+
+	public static void clear() {
+		List<Runnable> evicted = new ArrayList<Runnable>();
+		synchronized (levels) {
+			for (Entry entry : levels.values())
+				if (entry.onFirstUse != null)
+					evicted.add(entry.onFirstUse);
+			levels.clear();
+			bytes = 0;
+		}
+		for (Runnable callback : evicted)
+			callback.run();
+	}
+
+	/**
+	 * Estimated memory taken by cached levels, in bytes.
+	 */
+	public static long getBytes() {
+		synchronized (levels) {
+			return bytes;
+		}
+	}
+
+	public static long getHits() {
+		synchronized (levels) {
+			return hits;
+		}
+	}
+
+	public static long getMisses() {
+		synchronized (levels) {
+			return misses;
+		}
+	}
+
+	private static void evict(long capacity, List<Runnable> evicted) {
+		Iterator<Entry> eldest = levels.values().iterator();
+		while (bytes > capacity && levels.size() > 1) {
+			Entry entry = eldest.next();
+			bytes -= entry.bytes;
+			if (entry.onFirstUse != null)
+				evicted.add(entry.onFirstUse);
+			eldest.remove();
+		}
+	}
+
+	/**
+	 * Rough size of 'level': map, data and sprite template grid columns, plus the templates.
+	 */
+	private static long footprint(Level level) {
+		return level.length * (6L * level.height + 64) + level.getTemplateCount() * 48L + 512;
+	}
+
+	private static final class Entry {
+
+		final Level.State state;
+		final long bytes;
+
+		/** Set for prefetched levels until they are used, see {@link LevelCache#prefetch(Runnable)}; guarded by 'levels'. */
+		Runnable onFirstUse;
+
+		Entry(Level.State state, long bytes) {
+			this.state = state;
+			this.bytes = bytes;
+		}
+
+	}
+
+}
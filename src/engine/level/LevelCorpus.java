@@ -0,0 +1,214 @@
+package engine.level;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import engine.helper.MarioLog;
+import options.LevelConfig;
+import options.LevelGeneratorOptions;
+import options.MarioOptions;
+
+/**
+ * File of pre-generated levels for a contiguous range of seeds, all generated with the same options, read memory-mapped
+ * so that runs take their levels by seed in O(1) without generating them; concurrent JVMs reading the same corpus share it
+ * through the OS page cache.
+ * <br/><br/>
+ * Layout (big-endian): magic "MLCP", version (short), generation key (short length + UTF-8, see {@link LevelGeneratorOptions#getKey()}),
+ * first seed (int), number of levels (int), size of the largest level (int), then count + 1 offsets (longs) of the levels
+ * from the start of the file, the last one being the end of the file; then the levels in {@link LevelFormat}.
+ * <br/><br/>
+ * Write a corpus with {@link #write(String, LevelGeneratorOptions, int, int)} or {@link #main(String[])}; runs use it via the -lcp option, see {@link LevelCache}.
+ */
+public final class LevelCorpus {
+
+	public static final int MAGIC = 0x4D4C4350; // "MLCP"
+
+	public static final short VERSION = 1;
+
+	/** Files are mapped in segments of this size, each extended by the largest level so that no level crosses the end of a segment. */
+	private static final long SEGMENT = 1L << 30;
+
+	private static final Map<String, LevelCorpus> open = new HashMap<String, LevelCorpus>();
+
+	private final String generationKey;
+	private final int firstSeed;
+	private final int count;
+	private final long indexStart;
+	private final MappedByteBuffer[] segments;
+
+	private LevelCorpus(String path) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(path, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			long size = channel.size();
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, 64 * 1024));
+			if (header.getInt() != MAGIC)
+				throw invalid(path, "not a level corpus");
+			short version = header.getShort();
+			if (version != VERSION)
+				throw invalid(path, "unsupported version " + version + ", expected " + VERSION);
+			byte[] key = new byte[header.getShort() & 0xFFFF];
+			header.get(key);
+			generationKey = new String(key, StandardCharsets.UTF_8);
+			firstSeed = header.getInt();
+			count = header.getInt();
+			int largest = header.getInt();
+			indexStart = header.position();
+
+			segments = new MappedByteBuffer[(int) ((size + SEGMENT - 1) / SEGMENT)];
+			for (int i = 0; i < segments.length; i++) {
+				long start = i * SEGMENT;
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size - start, SEGMENT + Math.max(largest, 8)));
+			}
+		} finally {
+			file.close(); // mappings stay valid
+		}
+	}
+
+	/**
+	 * Opens the corpus at 'path'; corpora are opened once per JVM and shared, the returned corpus is thread-safe.
+	 */
+	public static LevelCorpus open(String path) throws IOException {
+		synchronized (open) {
+			LevelCorpus corpus = open.get(path);
+			if (corpus == null) {
+				corpus = new LevelCorpus(path);
+				open.put(path, corpus);
+			}
+			return corpus;
+		}
+	}
+
+	/**
+	 * Options the levels were generated with, see {@link LevelGeneratorOptions#getKey()}.
+	 */
+	public String getGenerationKey() {
+		return generationKey;
+	}
+
+	public int getFirstSeed() {
+		return firstSeed;
+	}
+
+	public int size() {
+		return count;
+	}
+
+	public boolean contains(int seed) {
+		return seed >= firstSeed && seed - firstSeed < count;
+	}
+
+	/**
+	 * Decodes the level generated from 'seed', see {@link #contains(int)}.
+	 */
+	public Level getLevel(int seed) {
+		if (!contains(seed)) {
+			MarioLog.error("LevelCorpus.getLevel(): seed " + seed + " is not within [" + firstSeed + ", " + (firstSeed + count) + ").");
+			throw new RuntimeException("Seed " + seed + " is not in the corpus.");
+		}
+		long offset = getLong(indexStart + 8L * (seed - firstSeed));
+		ByteBuffer level = segments[(int) (offset / SEGMENT)].duplicate();
+		level.position((int) (offset % SEGMENT));
+		return LevelFormat.read(level);
+	}
+
+	private long getLong(long position) {
+		return segments[(int) (position / SEGMENT)].getLong((int) (position % SEGMENT));
+	}
+
+	/**
+	 * Generates levels for seeds 'firstSeed' ... 'firstSeed' + 'count' - 1 with 'options' and writes them into a corpus at 'path'.
+	 */
+	public static void write(String path, LevelGeneratorOptions options, int firstSeed, int count) throws IOException {
+		byte[] key = options.getKey().getBytes(StandardCharsets.UTF_8);
+		int headerSize = 4 + 2 + 2 + key.length + 4 + 4 + 4;
+		long[] offsets = new long[count + 1];
+		int largest = 0;
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+		try {
+			// header and index are written again once the levels are known
+			writeHeader(out, key, firstSeed, count, 0);
+			for (int i = 0; i <= count; i++)
+				out.writeLong(0);
+			long position = headerSize + 8L * (count + 1);
+			for (int i = 0; i < count; i++) {
+				byte[] level = LevelFormat.encode(LevelGenerator.generate(options, firstSeed + i));
+				offsets[i] = position;
+				out.write(level);
+				position += level.length;
+				largest = Math.max(largest, level.length);
+			}
+			offsets[count] = position;
+		} finally {
+			out.close();
+		}
+
+		RandomAccessFile file = new RandomAccessFile(path, "rw");
+		try {
+			ByteBuffer index = ByteBuffer.allocate(headerSize + 8 * (count + 1));
+			index.putInt(MAGIC).putShort(VERSION).putShort((short) key.length).put(key);
+			index.putInt(firstSeed).putInt(count).putInt(largest);
+			for (long offset : offsets)
+				index.putLong(offset);
+			index.flip();
+			file.getChannel().write(index, 0);
+		} finally {
+			file.close();
+		}
+		synchronized (open) {
+			open.remove(path);
+		}
+	}
+
+	private static void writeHeader(DataOutputStream out, byte[] key, int firstSeed, int count, int largest) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeShort(VERSION);
+		out.writeShort(key.length);
+		out.write(key);
+		out.writeInt(firstSeed);
+		out.writeInt(count);
+		out.writeInt(largest);
+	}
+
+	/**
+	 * Writes a corpus.
+	 * <br/><br/>
+	 * Usage: LevelCorpus file first-seed count [level-config | options...]
+	 * <br/><br/>
+	 * e.g. "LevelCorpus level6.corpus 0 1000000 LEVEL_6_FULL_GAME"; levels are generated with options of the {@link LevelConfig}
+	 * or with the given {@link MarioOptions}.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3) {
+			System.out.println("Usage: LevelCorpus file first-seed count [level-config | options...]");
+			System.out.println("Generates levels for seeds first-seed ... first-seed + count - 1 into a level corpus file.");
+			return;
+		}
+		String options = "";
+		if (args.length == 4 && !args[3].startsWith("-")) {
+			options = LevelConfig.valueOf(args[3]).getOptionsVisualizationOff();
+		} else {
+			for (int i = 3; i < args.length; i++)
+				options += " " + args[i];
+		}
+		long start = System.currentTimeMillis();
+		write(args[0], LevelGeneratorOptions.of(MarioOptions.create(options)), Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+		System.out.println("Written " + args[2] + " levels into " + args[0] + " in " + (System.currentTimeMillis() - start) + " ms.");
+	}
+
+	private static IOException invalid(String path, String reason) {
+		MarioLog.error("LevelCorpus: " + path + ": " + reason + ".");
+		return new IOException("Invalid level corpus " + path + ": " + reason + ".");
+	}
+
+}
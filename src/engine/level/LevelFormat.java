@@ -0,0 +1,305 @@
+package engine.level;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import engine.helper.MarioLog;
+
+/**
+ * Compact, versioned binary format of a {@link Level}, used instead of Java serialization of the whole object graph.
+ * <br/><br/>
+ * Layout (big-endian):
+ * <ul>
+ * <li>header: magic "MLVL", version (short), flags (short; bit 0 = counters present), length, height, random seed, type,
+ *     difficulty, exit X, exit Y (ints)</li>
+ * <li>counters: number of values (int) and the values (ints), see {@link Level.objCounters}, if flag 0 is set</li>
+ * <li>map and data: each as its size in bytes (int) and run-length pairs (run of 1-255 cells, byte value) over cells
+ *     in column order, i.e., x * height + y</li>
+ * <li>sprite templates: count (int), then for each: cell (int), type (byte), flags (byte; bit 0 = dead)</li>
+ * </ul>
+ * Levels are decoded straight from a {@link ByteBuffer}, e.g., a memory-mapped file, into the level's own arrays.
+ * Files in the old format (serialized {@link Level}) are still read by {@link #load(String)}; {@link #main(String[])} converts them.
+ */
+public final class LevelFormat {
+
+	public static final int MAGIC = 0x4D4C564C; // "MLVL"
+
+	public static final short VERSION = 1;
+
+	private static final int FLAG_COUNTERS = 1;
+
+	private static final int TEMPLATE_DEAD = 1;
+
+	/** First two bytes of a Java serialization stream, see {@link java.io.ObjectStreamConstants#STREAM_MAGIC}. */
+	private static final int JAVA_SERIALIZATION_MAGIC = 0xACED;
+
+	private static final int COUNTERS = 21;
+
+	private LevelFormat() {
+	}
+
+	/**
+	 * 'level' in the binary format.
+	 */
+	public static byte[] encode(Level level) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+		try {
+			write(level, new DataOutputStream(bytes));
+		} catch (IOException e) {
+			throw new RuntimeException("Cannot encode the level.", e); // never happens in memory
+		}
+		return bytes.toByteArray();
+	}
+
+	public static void write(Level level, DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeShort(VERSION);
+		out.writeShort(level.counters != null ? FLAG_COUNTERS : 0);
+		out.writeInt(level.length);
+		out.writeInt(level.height);
+		out.writeInt(level.randomSeed);
+		out.writeInt(level.type);
+		out.writeInt(level.difficulty);
+		out.writeInt(level.xExit);
+		out.writeInt(level.yExit);
+
+		if (level.counters != null) {
+			int[] counters = getCounters(level.counters);
+			out.writeInt(counters.length);
+			for (int counter : counters)
+				out.writeInt(counter);
+		}
+
+		writeCells(level.map, level.height, out);
+		writeCells(level.data, level.height, out);
+
+		int templates = 0;
+		for (int x = 0; x < level.length; x++)
+			for (int y = 0; y < level.height; y++)
+				if (level.spriteTemplates[x][y] != null)
+					templates++;
+		out.writeInt(templates);
+		for (int x = 0; x < level.length; x++)
+			for (int y = 0; y < level.height; y++) {
+				SpriteTemplate template = level.spriteTemplates[x][y];
+				if (template != null) {
+					out.writeInt(x * level.height + y);
+					out.writeByte(template.getType());
+					out.writeByte(template.isDead ? TEMPLATE_DEAD : 0);
+				}
+			}
+	}
+
+	/**
+	 * Decodes a level from 'in' starting at its position; the position is moved past the level.
+	 */
+	public static Level read(ByteBuffer in) {
+		int magic = in.getInt();
+		if (magic != MAGIC)
+			throw invalid("not a level (magic " + Integer.toHexString(magic) + ")");
+		short version = in.getShort();
+		if (version != VERSION)
+			throw invalid("unsupported version " + version + ", expected " + VERSION);
+		int flags = in.getShort();
+		int length = in.getInt();
+		int height = in.getInt();
+		if (length <= 0 || height <= 0)
+			throw invalid("invalid size " + length + "x" + height);
+
+		Level level = new Level(length, height);
+		level.randomSeed = in.getInt();
+		level.type = in.getInt();
+		level.difficulty = in.getInt();
+		level.xExit = in.getInt();
+		level.yExit = in.getInt();
+
+		if ((flags & FLAG_COUNTERS) != 0) {
+			int count = in.getInt();
+			int[] counters = new int[COUNTERS];
+			for (int i = 0; i < count; i++) {
+				int value = in.getInt();
+				if (i < COUNTERS)
+					counters[i] = value; // newer versions may append counters
+			}
+			level.counters = new Level.objCounters();
+			setCounters(level.counters, counters);
+		}
+
+		readCells(in, level.map, height);
+		readCells(in, level.data, height);
+
+		int templates = in.getInt();
+		for (int i = 0; i < templates; i++) {
+			int cell = in.getInt();
+			int type = in.get();
+			int templateFlags = in.get();
+			if (cell < 0 || cell >= length * height)
+				throw invalid("sprite template out of the level at cell " + cell);
+			SpriteTemplate template = new SpriteTemplate(type);
+			template.isDead = (templateFlags & TEMPLATE_DEAD) != 0;
+			level.spriteTemplates[cell / height][cell % height] = template;
+		}
+
+		level.rebuildAnimated();
+		return level;
+	}
+
+	/**
+	 * Saves 'level' into the file 'path' in the binary format.
+	 */
+	public static void save(Level level, String path) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)));
+		try {
+			write(level, out);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Loads the level from the file 'path', memory-mapped; files in the old format (serialized {@link Level}) are recognized and read too.
+	 */
+	public static Level load(String path) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(path, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.remaining() >= 2 && (buffer.getShort(0) & 0xFFFF) == JAVA_SERIALIZATION_MAGIC)
+				return loadSerialized(path);
+			return read(buffer);
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Converts levels saved in the old format (serialized {@link Level}) into the binary format.
+	 * <br/><br/>
+	 * Usage: LevelFormat old-level new-level [old-level new-level ...]
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0 || args.length % 2 != 0) {
+			System.out.println("Usage: LevelFormat old-level new-level [old-level new-level ...]");
+			System.out.println("Converts levels saved by Java serialization into the binary level format.");
+			return;
+		}
+		for (int i = 0; i < args.length; i += 2) {
+			save(load(args[i]), args[i + 1]);
+			System.out.println(args[i] + " -> " + args[i + 1]);
+		}
+	}
+
+	private static Level loadSerialized(String path) throws IOException {
+		ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(path)));
+		try {
+			return Level.load(in);
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Class not found in " + path, e);
+		} finally {
+			in.close();
+		}
+	}
+
+	private static void writeCells(byte[][] cells, int height, DataOutputStream out) throws IOException {
+		out.writeInt(2 * countRuns(cells, height));
+		int run = 0;
+		byte value = 0;
+		for (byte[] column : cells)
+			for (int y = 0; y < height; y++) {
+				if (run > 0 && (column[y] != value || run == 255)) {
+					out.writeByte(run);
+					out.writeByte(value);
+					run = 0;
+				}
+				value = column[y];
+				run++;
+			}
+		if (run > 0) {
+			out.writeByte(run);
+			out.writeByte(value);
+		}
+	}
+
+	private static int countRuns(byte[][] cells, int height) {
+		int runs = 0;
+		int run = 0;
+		byte value = 0;
+		for (byte[] column : cells)
+			for (int y = 0; y < height; y++) {
+				if (run > 0 && (column[y] != value || run == 255)) {
+					runs++;
+					run = 0;
+				}
+				value = column[y];
+				run++;
+			}
+		return run > 0 ? runs + 1 : runs;
+	}
+
+	private static void readCells(ByteBuffer in, byte[][] cells, int height) {
+		int size = in.getInt();
+		int end = in.position() + size;
+		int x = 0, y = 0;
+		while (in.position() < end) {
+			int run = in.get() & 0xFF;
+			byte value = in.get();
+			if (run == 0 || x + (y + run - 1) / height >= cells.length)
+				throw invalid("corrupted cells at x = " + x);
+			for (int i = 0; i < run; i++) {
+				cells[x][y] = value;
+				if (++y == height) {
+					y = 0;
+					x++;
+				}
+			}
+		}
+		if (x != cells.length || y != 0)
+			throw invalid("cells end at x = " + x + ", y = " + y + " instead of x = " + cells.length);
+	}
+
+	private static int[] getCounters(Level.objCounters c) {
+		return new int[] { c.deadEndsCount, c.cannonsCount, c.platformCount, c.tubesCount, c.blocksCount, c.coinsCount,
+				c.gapsCount, c.hiddenBlocksCount, c.totalCannons, c.totalGaps, c.totalDeadEnds, c.totalBlocks,
+				c.totalHiddenBlocks, c.totalCoins, c.totalHillStraight, c.totalTubes, c.totalPowerUps, c.mushrooms,
+				c.flowers, c.creatures, c.greenMushrooms };
+	}
+
+	private static void setCounters(Level.objCounters c, int[] v) {
+		c.deadEndsCount = v[0];
+		c.cannonsCount = v[1];
+		c.platformCount = v[2];
+		c.tubesCount = v[3];
+		c.blocksCount = v[4];
+		c.coinsCount = v[5];
+		c.gapsCount = v[6];
+		c.hiddenBlocksCount = v[7];
+		c.totalCannons = v[8];
+		c.totalGaps = v[9];
+		c.totalDeadEnds = v[10];
+		c.totalBlocks = v[11];
+		c.totalHiddenBlocks = v[12];
+		c.totalCoins = v[13];
+		c.totalHillStraight = v[14];
+		c.totalTubes = v[15];
+		c.totalPowerUps = v[16];
+		c.mushrooms = v[17];
+		c.flowers = v[18];
+		c.creatures = v[19];
+		c.greenMushrooms = v[20];
+	}
+
+	private static RuntimeException invalid(String reason) {
+		MarioLog.error("LevelFormat: " + reason + ".");
+		return new RuntimeException("Invalid level: " + reason + ".");
+	}
+
+}
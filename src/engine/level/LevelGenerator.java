@@ -29,11 +29,10 @@ package engine.level;
 
 import engine.helper.MarioLog;
 import engine.sprites.Sprite;
+import options.LevelGeneratorOptions;
 import options.LevelOptions;
 
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
 import java.util.Random;
 
 /**
@@ -106,14 +105,10 @@ public class LevelGenerator {
 				System.exit(1);
 			}
 
-			level = Level.load(new ObjectInputStream(new FileInputStream(
-					filePath)));
+			level = LevelFormat.load(filePath);
 		} catch (IOException e) {
 			MarioLog.error("[MarioAI EXCEPTION] : failed while trying to loadAgent " + filePath);
 			System.exit(1);
-		} catch (ClassNotFoundException e) {
-			MarioLog.error("[MarioAI EXCEPTION] : class not found in " + filePath);
-			System.exit(1);
 		}
 	}
 
@@ -122,24 +117,29 @@ public class LevelGenerator {
 		if (LevelOptions.isLevelFileName()) {
 			loadLevel(LevelOptions.getLevelFileName());
 			return level;
-		} else {
-			if (LevelOptions.getRandomSeed() < 0) {
-				levelSeed = Math.abs(new Random().nextInt());
-			} else {
-				levelSeed = LevelOptions.getRandomSeed();
-			}
 		}
-		
-		length = LevelOptions.getLevelLength();
-		height = LevelOptions.getLevelHeight();
+		int seed = LevelOptions.getRandomSeed() < 0 ? Math.abs(new Random().nextInt()) : LevelOptions.getRandomSeed();
+		return createLevel(LevelGeneratorOptions.current(), seed);
+	}
+
+	/**
+	 * Generates the level for 'options' and 'seed'. The result depends on nothing else, so equal arguments give equal levels
+	 * on any thread; a generator must not be used by several threads at once, see {@link #generate(LevelGeneratorOptions, int)}.
+	 */
+	public Level createLevel(LevelGeneratorOptions options, int seed) {
+		levelType = options.getLevelType();
+		levelSeed = seed;
+
+		length = options.getLevelLength();
+		height = options.getLevelHeight();
 		if (height < 15) {
 			MarioLog.warn("[Mario AI WARNING] : Level height changed to minimal allowed value 15");
 			height = 15;
 		}
-		isFlatLevel = LevelOptions.isFlat();
+		isFlatLevel = options.isFlat();
 
-		counters.reset();
-		levelDifficulty = LevelOptions.getDifficulty();
+		counters.reset(options);
+		levelDifficulty = options.getDifficulty();
 		odds[ODDS_STRAIGHT] = 20;
 		odds[ODDS_PLATFORMS] = 1;
 		odds[ODDS_TUBES] = 2 + 1 * levelDifficulty;
@@ -165,9 +165,9 @@ public class LevelGenerator {
         level = new Level(length, height);
         
 		random.setSeed(levelSeed);
-		creaturesRandom.init(levelSeed, LevelOptions.getEnemies(), levelDifficulty);
+		creaturesRandom.init(levelSeed, options.getEnemies(), levelDifficulty);
 
-		isLadder = LevelOptions.isLadders();
+		isLadder = options.isLadders();
 
 		int currentLength = 0; // total level currentLength so far
 
@@ -186,8 +186,8 @@ public class LevelGenerator {
 			floor = height - 1 - random.nextInt(4); // floor of the exit line
 
 		// coordinates of the exit
-		level.xExit = LevelOptions.getLevelExit()[0];
-		level.yExit = LevelOptions.getLevelExit()[1];
+		level.xExit = options.getExitX();
+		level.yExit = options.getExitY();
 
 		if (level.xExit == 0)
 			level.xExit = level.length - 1;
@@ -229,11 +229,19 @@ public class LevelGenerator {
 		fixWalls();
 		setPrincess(level.xExit, level.yExit);
 
-		Level.counters = counters;
+		level.counters = counters;
+		level.clearChanges(); // blocks placed by the generator are not changes, see Level.getCellHash()
 
 		return level;
 	}
 
+	/**
+	 * Generates the level for 'options' and 'seed' with a new generator; safe to call from any thread.
+	 */
+	public static Level generate(LevelGeneratorOptions options, int seed) {
+		return new LevelGenerator().createLevel(options, seed);
+	}
+
 	private void setPrincess(int x, int y) {
 		level.setSpriteTemplate(x, y, new SpriteTemplate(Sprite.KIND_PRINCESS));
 		level.setBlock(x, y, (byte) (15 + 15 * 16));
@@ -0,0 +1,92 @@
+package engine.level;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import engine.helper.MarioLog;
+import options.MarioOptions;
+
+/**
+ * Generates levels of upcoming runs on its own threads ahead of the runs, so that generation overlaps with simulation
+ * instead of stalling the evaluation workers.
+ * <br/><br/>
+ * Levels are scheduled in the order the runs will start, see {@link #schedule(MarioOptions)}, and put into the {@link LevelCache},
+ * where the runs find them. At most 'ahead' levels are generated and not yet taken by a run at any time, so the producer never
+ * runs far ahead of the workers and the cache does not evict levels before they are played. A run whose level is not ready yet
+ * generates it itself, as without the producer.
+ * <br/><br/>
+ * Does nothing for runs whose levels are not cached: levels loaded from a file, with a random seed, or with the cache disabled.
+ */
+public final class LevelProducer {
+
+	private static final AtomicInteger producers = new AtomicInteger();
+
+	private final LinkedBlockingQueue<MarioOptions> scheduled = new LinkedBlockingQueue<MarioOptions>();
+
+	/** Permits for levels generated but not taken by a run yet. */
+	private final Semaphore ahead;
+
+	private final ExecutorService threads;
+
+	/**
+	 * @param threads number of generating threads
+	 * @param ahead maximum number of generated levels waiting for their runs
+	 */
+	public LevelProducer(int threads, int ahead) {
+		if (threads <= 0 || ahead <= 0) {
+			MarioLog.error("LevelProducer: threads (" + threads + ") and ahead (" + ahead + ") must be positive.");
+			throw new RuntimeException("Invalid LevelProducer threads " + threads + " or ahead " + ahead + ".");
+		}
+		this.ahead = new Semaphore(ahead);
+		String name = "LevelProducer-" + producers.incrementAndGet() + "-";
+		AtomicInteger index = new AtomicInteger();
+		this.threads = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, name + index.incrementAndGet());
+			thread.setDaemon(true);
+			thread.setPriority(Thread.NORM_PRIORITY - 1); // simulation goes first
+			return thread;
+		});
+		for (int i = 0; i < threads; i++)
+			this.threads.execute(this::produce);
+	}
+
+	/**
+	 * Schedules the level of a run with 'options', see {@link engine.core.MarioSimulator}; levels are generated in the order scheduled.
+	 */
+	public void schedule(MarioOptions options) {
+		scheduled.add(options);
+	}
+
+	/**
+	 * Stops generating; scheduled levels not generated yet are dropped.
+	 */
+	public void shutdown() {
+		threads.shutdownNow();
+		scheduled.clear();
+	}
+
+	private void produce() {
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				MarioOptions options = scheduled.take();
+				ahead.acquire();
+				MarioOptions previous = MarioOptions.bind(options);
+				try {
+					if (!LevelCache.prefetch(ahead::release))
+						ahead.release();
+				} catch (RuntimeException e) {
+					ahead.release();
+					MarioLog.warn("[LevelProducer] cannot generate a level ahead, its run will: " + e);
+				} finally {
+					MarioOptions.bind(previous);
+				}
+			}
+		} catch (InterruptedException e) {
+			// shut down
+		}
+	}
+
+}
@@ -39,6 +39,9 @@ public Sprite sprite;
 public boolean isDead = false;
 private boolean winged;
 
+// position among the templates of the level, see Level#getTemplate(int)
+transient int index = -1;
+
 private static final long serialVersionUID = -6585112454240065011L;
 
 public int getType()
@@ -48,6 +51,23 @@ public int getType()
 
 private int type;
 
+/**
+ * Template of the same type and index as 'template', for a forked level, see {@link Level#fork(Level.State)}.
+ */
+SpriteTemplate(SpriteTemplate template)
+{
+    this(template.type);
+    index = template.index;
+}
+
+/**
+ * Position of the template in {@link Level#getTemplate(int)}; the same in all levels forked from the same original.
+ */
+public int getIndex()
+{
+    return index;
+}
+
 public SpriteTemplate(int type)
 {
     this.type = type;
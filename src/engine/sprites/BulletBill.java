@@ -29,6 +29,7 @@ package engine.sprites;
 
 import engine.core.LevelScene;
 import engine.graphics.Art;
+import engine.helper.FastRandom;
 
 
 public class BulletBill extends Sprite
@@ -77,8 +78,8 @@ public void collideCheck()
             {
                 world.mario.stomp(this);
                 dead = true;
-                ++LevelScene.killedCreaturesTotal;
-                ++LevelScene.killedCreaturesByStomp;
+                ++world.killedCreaturesTotal;
+                ++world.killedCreaturesByStomp;
 
                 xa = 0;
                 ya = 1;
@@ -100,9 +101,10 @@ public void move()
         if (deadTime == 0)
         {
             deadTime = 1;
-            for (int i = 0; i < 8; i++)
+            FastRandom random = world.getEffectRandom();
+            for (int i = 0; i < 8 && world.hasCosmeticSprites(); i++)
             {
-                world.addSprite(new Sparkle((int) (x + Math.random() * 16 - 8) + 4, (int) (y - Math.random() * 8) + 4, (float) (Math.random() * 2 - 1), (float) Math.random() * -1, 0, 1, 5));
+                world.addSprite(new Sparkle(world, (int) (x + random.nextDouble() * 16 - 8) + 4, (int) (y - random.nextDouble() * 8) + 4, (float) (random.nextDouble() * 2 - 1), (float) random.nextDouble() * -1, 0, 1, 5));
             }
             spriteContext.removeSprite(this);
         }
@@ -167,4 +169,19 @@ public boolean shellCollideCheck(Shell shell)
     }
     return false;
 }
+
+@Override
+protected void rebind(SpriteContext context)
+{
+    super.rebind(context);
+    world = (LevelScene) context;
+}
+
+@Override
+public long stateHash()
+{
+    long hash = hashState(super.stateHash(), facing);
+    hash = hashState(hash, deadTime);
+    return hashState(hash, dead ? 1 : 0);
+}
 }
@@ -28,6 +28,7 @@
 package engine.sprites;
 
 import engine.graphics.Art;
+import engine.helper.FastRandom;
 
 
 public class CoinAnim extends Sprite
@@ -52,10 +53,11 @@ public void move()
 {
     if (life-- < 0)
     {
-        Sprite.spriteContext.removeSprite(this);
+        spriteContext.removeSprite(this);
+        FastRandom random = spriteContext.getEffectRandom();
         for (int xx = 0; xx < 2; xx++)
             for (int yy = 0; yy < 2; yy++)
-                Sprite.spriteContext.addSprite(new Sparkle((int) x + xx * 8 + (int) (Math.random() * 8), (int) y + yy * 8 + (int) (Math.random() * 8), 0, 0, 0, 2, 5));
+                spriteContext.addSprite(new Sparkle(spriteContext, (int) x + xx * 8 + (int) (random.nextDouble() * 8), (int) y + yy * 8 + (int) (random.nextDouble() * 8), 0, 0, 0, 2, 5));
     }
 
     xPic = life & 3;
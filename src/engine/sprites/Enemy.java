@@ -30,7 +30,7 @@ package engine.sprites;
 import engine.core.LevelScene;
 import engine.core.Points;
 import engine.graphics.Art;
-import options.SimulatorOptions;
+import engine.helper.FastRandom;
 
 import java.awt.*;
 
@@ -81,6 +81,7 @@ public Enemy(LevelScene levelScene, int x, int y, int dir, int type, boolean win
     xPicO = 8;
     yPicO = 31;
 
+    float creaturesGravity = levelScene.getCreaturesGravity();
     yaa = creaturesGravity * 2;
     yaw = creaturesGravity == 1 ? 1 : 0.3f * creaturesGravity;
 
@@ -156,8 +157,8 @@ public void collideCheck()
                     {
                         spriteContext.addSprite(new Shell(levelScene, x, y, 1));
                     }
-                    ++LevelScene.killedCreaturesTotal;
-                    ++LevelScene.killedCreaturesByStomp;
+                    ++levelScene.killedCreaturesTotal;
+                    ++levelScene.killedCreaturesByStomp;
                 }
             } else
             {
@@ -177,11 +178,12 @@ public void move()
         if (deadTime == 0)
         {
             deadTime = 1;
-            for (int i = 0; i < 8; i++)
+            FastRandom random = levelScene.getEffectRandom();
+            for (int i = 0; i < 8 && levelScene.hasCosmeticSprites(); i++)
             {
-                levelScene.addSprite(new Sparkle(
-                    (int) (x + Math.random() * 16 - 8) + 4, (int) (y - Math.random() * 8) + 4,
-                    (float) (Math.random() * 2 - 1), (float) Math.random() * -1, 0, 1, 5));
+                levelScene.addSprite(new Sparkle(levelScene,
+                    (int) (x + random.nextDouble() * 16 - 8) + 4, (int) (y - random.nextDouble() * 8) + 4,
+                    (float) (random.nextDouble() * 2 - 1), (float) random.nextDouble() * -1, 0, 1, 5));
             }
             spriteContext.removeSprite(this);
         }
@@ -223,10 +225,10 @@ public void move()
     ya *= winged ? 0.95f : 0.85f;
     if (onGround)
     {
-        xa *= (GROUND_INERTIA + windScale(windCoeff, facing) + iceScale(iceCoeff));
+        xa *= (GROUND_INERTIA + windScale(levelScene.getCreaturesWind(), facing) + iceScale(levelScene.getCreaturesIce()));
     } else
     {
-        xa *= (AIR_INERTIA + windScale(windCoeff, facing) + iceScale(iceCoeff));
+        xa *= (AIR_INERTIA + windScale(levelScene.getCreaturesWind(), facing) + iceScale(levelScene.getCreaturesIce()));
     }
 
     if (!onGround)
@@ -330,7 +332,7 @@ public boolean move(float xa, float ya)
         return false;
     } else
     {
-        if (SimulatorOptions.areFrozenCreatures)
+        if (levelScene.areCreaturesFrozen())
             return true;
 
         x += xa;
@@ -367,8 +369,8 @@ public boolean shellCollideCheck(Shell shell)
             winged = false;
             hPic = -hPic;
             yPicO = -yPicO + 16;
-            ++LevelScene.killedCreaturesTotal;
-            ++LevelScene.killedCreaturesByShell;
+            ++levelScene.killedCreaturesTotal;
+            ++levelScene.killedCreaturesByShell;
             levelScene.scorePoints(Points.SHELL_HIT);
             return true;
         }
@@ -397,8 +399,8 @@ public boolean fireballCollideCheck(Fireball fireball)
             winged = false;
             hPic = -hPic;
             yPicO = -yPicO + 16;
-            ++LevelScene.killedCreaturesTotal;
-            ++LevelScene.killedCreaturesByFireBall;
+            ++levelScene.killedCreaturesTotal;
+            ++levelScene.killedCreaturesByFireBall;
             levelScene.scorePoints(Points.SHOOT);
             return true;
         }
@@ -475,4 +477,19 @@ public void render(Graphics og)
         }
     }
 }
+
+@Override
+protected void rebind(SpriteContext context)
+{
+    super.rebind(context);
+    levelScene = (LevelScene) context;
+}
+
+@Override
+public long stateHash()
+{
+    long hash = hashState(super.stateHash(), facing);
+    hash = hashState(hash, deadTime);
+    return hashState(hash, (onGround ? 1 : 0) | (winged ? 2 : 0) | (flyDeath ? 4 : 0) | (avoidCliffs ? 8 : 0));
+}
 }
@@ -82,4 +82,17 @@ public void move()
         return;
     }
 }
+
+@Override
+protected void rebind(SpriteContext context)
+{
+    super.rebind(context);
+    world = (LevelScene) context;
+}
+
+@Override
+public long stateHash()
+{
+    return hashState(hashState(super.stateHash(), facing), life);
+}
 }
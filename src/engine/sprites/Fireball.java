@@ -29,6 +29,7 @@ package engine.sprites;
 
 import engine.core.LevelScene;
 import engine.graphics.Art;
+import engine.helper.FastRandom;
 
 
 public class Fireball extends Sprite
@@ -75,9 +76,10 @@ public void move()
 {
     if (deadTime > 0)
     {
-        for (int i = 0; i < 8; i++)
+        FastRandom random = world.getEffectRandom();
+        for (int i = 0; i < 8 && world.hasCosmeticSprites(); i++)
         {
-            world.addSprite(new Sparkle((int) (x + Math.random() * 8 - 4) + 4, (int) (y + Math.random() * 8 - 4) + 2, (float) Math.random() * 2 - 1 - facing, (float) Math.random() * 2 - 1, 0, 1, 5));
+            world.addSprite(new Sparkle(world, (int) (x + random.nextDouble() * 8 - 4) + 4, (int) (y + random.nextDouble() * 8 - 4) + 2, (float) random.nextDouble() * 2 - 1 - facing, (float) random.nextDouble() * 2 - 1, 0, 1, 5));
         }
         spriteContext.removeSprite(this);
 
@@ -235,4 +237,19 @@ public void die()
     ya = -5;
     deadTime = 100;
 }
+
+@Override
+protected void rebind(SpriteContext context)
+{
+    super.rebind(context);
+    world = (LevelScene) context;
+}
+
+@Override
+public long stateHash()
+{
+    long hash = hashState(super.stateHash(), facing);
+    hash = hashState(hash, deadTime);
+    return hashState(hash, (onGround ? 1 : 0) | (dead ? 2 : 0));
+}
 }
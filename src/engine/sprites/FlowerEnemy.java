@@ -28,7 +28,7 @@
 package engine.sprites;
 
 import engine.core.LevelScene;
-import options.SimulatorOptions;
+import engine.helper.FastRandom;
 
 public class FlowerEnemy extends Enemy
 {
@@ -64,7 +64,7 @@ public FlowerEnemy(LevelScene world, int x, int y, int mapX, int mapY)
 public void move()
 {
     //TODO:|L| check this
-    if (SimulatorOptions.areFrozenCreatures == true)
+    if (world.areCreaturesFrozen())
     {
         return;
     }
@@ -75,9 +75,10 @@ public void move()
         if (deadTime == 0)
         {
             deadTime = 1;
-            for (int i = 0; i < 8; i++)
+            FastRandom random = world.getEffectRandom();
+            for (int i = 0; i < 8 && world.hasCosmeticSprites(); i++)
             {
-                world.addSprite(new Sparkle((int) (x + Math.random() * 16 - 8) + 4, (int) (y - Math.random() * 8) + 4, (float) (Math.random() * 2 - 1), (float) Math.random() * -1, 0, 1, 5));
+                world.addSprite(new Sparkle(world, (int) (x + random.nextDouble() * 16 - 8) + 4, (int) (y - random.nextDouble() * 8) + 4, (float) (random.nextDouble() * 2 - 1), (float) random.nextDouble() * -1, 0, 1, 5));
             }
             spriteContext.removeSprite(this);
         }
@@ -116,4 +117,18 @@ public void move()
 
     xPic = ((tick / 2) & 1) * 2 + ((tick / 6) & 1);
 }
+
+@Override
+protected void rebind(SpriteContext context)
+{
+    super.rebind(context);
+    world = (LevelScene) context;
+}
+
+@Override
+public long stateHash()
+{
+    // waiting in the pipe, only jumpTime tells when the plant comes out
+    return hashState(hashState(super.stateHash(), jumpTime), yStart);
+}
 }
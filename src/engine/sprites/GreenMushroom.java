@@ -228,4 +228,19 @@ public void bumpCheck(int xTile, int yTile)
         ya = -10;
     }
 }
+
+@Override
+protected void rebind(SpriteContext context)
+{
+    super.rebind(context);
+    world = (LevelScene) context;
+}
+
+@Override
+public long stateHash()
+{
+    long hash = hashState(super.stateHash(), facing);
+    hash = hashState(hash, life);
+    return hashState(hash, onGround ? 1 : 0);
+}
 }
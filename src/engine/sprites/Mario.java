@@ -30,11 +30,13 @@ package engine.sprites;
 import engine.core.LevelScene;
 import engine.core.Points;
 import engine.graphics.Art;
+import engine.helper.FastRandom;
 import engine.input.MarioInput;
 import engine.input.MarioKey;
 import engine.level.Level;
 import options.SimulationOptions;
-import options.SimulatorOptions;
+
+import java.util.List;
 
 public final class Mario extends Sprite {
 	
@@ -42,18 +44,18 @@ public final class Mario extends Sprite {
 	public static final int STATUS_WIN = 1;
 	public static final int STATUS_DEAD = 0;
 
-	private static float marioGravity;
+	private float marioGravity;
 
-	public static boolean large = false;
-	public static boolean fire = false;
-	public static int coins = 0;
-	public static int hiddenBlocksFound = 0;
-	public static int collisionsWithCreatures = 0;
-	public static int mushroomsDevoured = 0;
-	public static int greenMushroomsDevoured = 0;
-	public static int flowersDevoured = 0;
+	public boolean large = false;
+	public boolean fire = false;
+	public int coins = 0;
+	public int hiddenBlocksFound = 0;
+	public int collisionsWithCreatures = 0;
+	public int mushroomsDevoured = 0;
+	public int greenMushroomsDevoured = 0;
+	public int flowersDevoured = 0;
 
-	private static boolean isMarioInvulnerable;
+	private boolean isMarioInvulnerable;
 
 	private int status = STATUS_RUNNING;
 	// for raccoon when carrying the shell
@@ -65,21 +67,16 @@ public final class Mario extends Sprite {
 	private boolean isRaccoon;
 	private float yaa = 1;
 
-	private static float windCoeff = 0f;
-	private static float iceCoeff = 0f;
-	private static float jumpPower;
+	private float windCoeff = 0f;
+	private float iceCoeff = 0f;
+	private float jumpPower;
 	private boolean inLadderZone;
 	private boolean onLadder;
 	private boolean onTopOfLadder = false;
 
-	public static void resetStatic() {
+	private void readOptions() {
 		large = SimulationOptions.getMarioStartMode() > 0;
 		fire = SimulationOptions.getMarioStartMode() == 2;
-		coins = 0;
-		hiddenBlocksFound = 0;
-		mushroomsDevoured = 0;
-		flowersDevoured = 0;
-		collisionsWithCreatures = 0;
 
 		isMarioInvulnerable = SimulationOptions.isMarioInvulnerable();
 		marioGravity = SimulationOptions.getGravityMario();
@@ -108,7 +105,7 @@ public final class Mario extends Sprite {
 	private boolean speedButtonNotPressed = false;
 	private boolean ableToShoot = false;
 
-	private static LevelScene levelScene;
+	private LevelScene levelScene;
 	public int facing;
 
 	public int xDeathPos, yDeathPos;
@@ -124,14 +121,15 @@ public final class Mario extends Sprite {
         height = 24;
     
         kind = KIND_MARIO;
-		Mario.levelScene = levelScene;
+		this.levelScene = levelScene;
+		readOptions();
 		x = levelScene.getMarioInitialPos().x;
 		y = levelScene.getMarioInitialPos().y;
 		mapX = (int) (x / 16);
 		mapY = (int) (y / 16);
 
 		facing = 1;
-		setMode(Mario.large, Mario.fire);
+		setMode(large, fire);
 		yaa = marioGravity * 3;
 		jT = jumpPower / (marioGravity);
 	}
@@ -143,8 +141,8 @@ public final class Mario extends Sprite {
 	private boolean newFire;
 
 	private void blink(boolean on) {
-		Mario.large = on ? newLarge : lastLarge;
-		Mario.fire = on ? newFire : lastFire;
+		large = on ? newLarge : lastLarge;
+		fire = on ? newFire : lastFire;
 
 		if (large) {
 			sheet = Art.mario;
@@ -171,14 +169,14 @@ public final class Mario extends Sprite {
 		if (!large)
 			fire = false;
 
-		lastLarge = Mario.large;
-		lastFire = Mario.fire;
+		lastLarge = this.large;
+		lastFire = this.fire;
 
-		Mario.large = large;
-		Mario.fire = fire;
+		this.large = large;
+		this.fire = fire;
 
-		newLarge = Mario.large;
-		newFire = Mario.fire;
+		newLarge = this.large;
+		newFire = this.fire;
 
 		blink(true);
 	}
@@ -211,7 +209,7 @@ public final class Mario extends Sprite {
 	}
 
 	public void move() {
-		if (SimulatorOptions.isFly) {
+		if (levelScene.isFly()) {
 			xa = ya = 0;
 			ya = keys.isPressed(MarioKey.DOWN) ? 10 : ya;
 			ya = keys.isPressed(MarioKey.UP) ? -10 : ya;
@@ -332,17 +330,17 @@ public final class Mario extends Sprite {
 		}
 
 		// SPEED/SHOOT button is pressed and was not pressed before + we can fire and there is not too many fireballs on screen
-		if (keys.isPressed(MarioKey.SPEED) && speedButtonNotPressed && Mario.fire && levelScene.fireballsOnScreen < 2) {
+		if (keys.isPressed(MarioKey.SPEED) && speedButtonNotPressed && fire && levelScene.fireballsOnScreen < 2) {
 			// => FIRE NEXT FIREBALL!
 			levelScene.addSprite(new Fireball(levelScene, x + facing * 6, y - 20, facing));
 			++levelScene.fireballsOnScreen;
 		}
 		
 		// CHECK WHETHER MARIO STILL CAN SHOOT
-		ableToShoot = Mario.fire && levelScene.fireballsOnScreen < 2;
+		ableToShoot = fire && levelScene.fireballsOnScreen < 2;
 		
 		// Cheats:
-		if (SimulatorOptions.isPowerRestoration && keys.isPressed(MarioKey.SPEED) && (!Mario.large || !Mario.fire))	setMode(true, true);
+		if (levelScene.isPowerRestoration() && keys.isPressed(MarioKey.SPEED) && (!large || !fire))	setMode(true, true);
 
 		speedButtonNotPressed = !keys.isPressed(MarioKey.SPEED);
 
@@ -359,11 +357,12 @@ public final class Mario extends Sprite {
 		calcPic();
 
 		if (sliding) {
-			for (int i = 0; i < 1; i++) {
-				levelScene.addSprite(new Sparkle(
-						(int) (x + Math.random() * 4 - 2) + facing * 8,
-						(int) (y + Math.random() * 4) - 24, (float) (Math
-								.random() * 2 - 1), (float) Math.random() * 1,
+			FastRandom random = levelScene.getEffectRandom();
+			for (int i = 0; i < 1 && levelScene.hasCosmeticSprites(); i++) {
+				levelScene.addSprite(new Sparkle(levelScene,
+						(int) (x + random.nextDouble() * 4 - 2) + facing * 8,
+						(int) (y + random.nextDouble() * 4) - 24, (float) (random
+								.nextDouble() * 2 - 1), (float) random.nextDouble() * 1,
 						0, 1, 5));
 			}
 			ya *= 0.5f;
@@ -454,11 +453,12 @@ public final class Mario extends Sprite {
 				runFrame = large ? 9 : 7;
 
 			if (xa > 3 || xa < -3) {
-				for (int i = 0; i < 3; i++) {
-					levelScene.addSprite(new Sparkle((int) (x + Math.random()
-							* 8 - 4), (int) (y + Math.random() * 4),
-							(float) (Math.random() * 2 - 1), (float) Math
-									.random() * -1, 0, 1, 5));
+				FastRandom random = levelScene.getEffectRandom();
+				for (int i = 0; i < 3 && levelScene.hasCosmeticSprites(); i++) {
+					levelScene.addSprite(new Sparkle(levelScene, (int) (x + random.nextDouble()
+							* 8 - 4), (int) (y + random.nextDouble() * 4),
+							(float) (random.nextDouble() * 2 - 1), (float) random
+									.nextDouble() * -1, 0, 1, 5));
 				}
 			}
 		}
@@ -586,13 +586,14 @@ public final class Mario extends Sprite {
 		byte block = levelScene.level.getBlock(x, y);
 
 		if (((Level.TILE_BEHAVIORS[block & 0xff]) & Level.BIT_PICKUPABLE) > 0) {
-			Mario.gainCoin();
+			gainCoin();
 			levelScene.level.setBlock(x, y, (byte) 0);
-			for (int xx = 0; xx < 2; xx++)
+			FastRandom random = levelScene.getEffectRandom();
+			for (int xx = 0; xx < 2 && levelScene.hasCosmeticSprites(); xx++)
 				for (int yy = 0; yy < 2; yy++)
-					levelScene.addSprite(new Sparkle(x * 16 + xx * 8
-							+ (int) (Math.random() * 8), y * 16 + yy * 8
-							+ (int) (Math.random() * 8), 0, 0, 0, 2, 5));
+					levelScene.addSprite(new Sparkle(levelScene, x * 16 + xx * 8
+							+ (int) (random.nextDouble() * 8), y * 16 + yy * 8
+							+ (int) (random.nextDouble() * 8), 0, 0, 0, 2, 5));
 		}
 
 		if (blocking && ya < 0) {
@@ -687,7 +688,7 @@ public final class Mario extends Sprite {
 		if (!fire) {
 			levelScene.mario.setMode(true, true);
 		} else {
-			Mario.gainCoin();
+			gainCoin();
 		}
 		++flowersDevoured;
 		levelScene.scorePoints(Points.FLOWER_FIRE);
@@ -700,7 +701,7 @@ public final class Mario extends Sprite {
 		if (!large) {
 			levelScene.mario.setMode(true, false);
 		} else {
-			Mario.gainCoin();
+			gainCoin();
 		}
 		++mushroomsDevoured;
 		levelScene.scorePoints(Points.MUSHROOM);
@@ -743,14 +744,14 @@ public final class Mario extends Sprite {
 		levelScene.scorePoints(Points.STOMP);
 	}
 
-	public static void gainCoin() {
+	public void gainCoin() {
 		coins++;
 		levelScene.scorePoints(Points.COIN);
 		// if (coins % 100 == 0)
 		// get1Up();
 	}
 
-	public static void gainHiddenBlock() {
+	public void gainHiddenBlock() {
 		++hiddenBlocksFound;
 	}
 
@@ -793,6 +794,45 @@ public final class Mario extends Sprite {
 	public boolean isOnTopOfLadder() {
 		return this.onTopOfLadder;
 	}
+
+	@Override
+	public Mario copy(final SpriteContext context) {
+		Mario copy = (Mario) super.copy(context);
+		if (keys != null) copy.keys = keys.toImmutable(); // the agent may keep changing its input
+		return copy;
+	}
+
+	@Override
+	protected void rebind(final SpriteContext context) {
+		super.rebind(context);
+		levelScene = (LevelScene) context;
+	}
+
+	@Override
+	public void relink(final List<Sprite> from, final List<Sprite> to) {
+		if (carried == null) return;
+		for (int i = 0; i < from.size(); ++i) {
+			if (from.get(i) == carried) {
+				carried = to.get(i);
+				return;
+			}
+		}
+		carried = carried.copy(levelScene); // not in the scene (yet), keep a private copy
+	}
+
+	@Override
+	public long stateHash() {
+		long hash = hashState(super.stateHash(), getMode().getCode());
+		hash = hashState(hash, status);
+		hash = hashState(hash, facing);
+		hash = hashState(hash, jumpTime);
+		hash = hashState(hash, invulnerableTime);
+		hash = hashState(hash, deathTime + 31L * winTime);
+		hash = hashState(hash, (onGround ? 1 : 0) | (wasOnGround ? 2 : 0) | (mayJump ? 4 : 0) | (ableToShoot ? 8 : 0)
+				| (sliding ? 16 : 0) | (ducking ? 32 : 0) | (carried != null ? 64 : 0) | (onLadder ? 128 : 0) | (inLadderZone ? 256 : 0)
+				| (onTopOfLadder ? 512 : 0) | (speedButtonNotPressed ? 1024 : 0) | (isRaccoon ? 2048 : 0));
+		return hashState(hash, Float.floatToIntBits(xJumpSpeed) + 31L * Float.floatToIntBits(yJumpSpeed));
+	}
 }
 
 // public byte getKeyMask()
@@ -33,9 +33,9 @@ public class Particle extends Sprite
 {
 public int life;
 
-public Particle(int x, int y, float xa, float ya)
+public Particle(SpriteContext world, int x, int y, float xa, float ya)
 {
-    this(x, y, xa, ya, (int) (Math.random() * 2), 0);
+    this(x, y, xa, ya, world.getEffectRandom().nextInt(2), 0);
 }
 
 public Particle(int x, int y, float xa, float ya, int xPic, int yPic)
@@ -58,7 +58,7 @@ public Particle(int x, int y, float xa, float ya, int xPic, int yPic)
 
 public void move()
 {
-    if (life-- < 0) Sprite.spriteContext.removeSprite(this);
+    if (life-- < 0) spriteContext.removeSprite(this);
     x += xa;
     y += ya;
     ya *= 0.95f;
@@ -29,6 +29,7 @@ package engine.sprites;
 
 import engine.core.LevelScene;
 import engine.graphics.Art;
+import engine.helper.FastRandom;
 
 
 public class Shell extends Sprite
@@ -68,7 +69,7 @@ public Shell(LevelScene world, float x, float y, int type)
     xPic = 4;
     ya = -5;
 
-    yaa = creaturesGravity * 2;
+    yaa = world.getCreaturesGravity() * 2;
 }
 
 public boolean fireballCollideCheck(Fireball fireball)
@@ -148,9 +149,10 @@ public void move()
         if (deadTime == 0)
         {
             deadTime = 1;
-            for (int i = 0; i < 8; i++)
+            FastRandom random = world.getEffectRandom();
+            for (int i = 0; i < 8 && world.hasCosmeticSprites(); i++)
             {
-                world.addSprite(new Sparkle((int) (x + Math.random() * 16 - 8) + 4, (int) (y - Math.random() * 8) + 4, (float) (Math.random() * 2 - 1), (float) Math.random() * -1, 0, 1, 5));
+                world.addSprite(new Sparkle(world, (int) (x + random.nextDouble() * 16 - 8) + 4, (int) (y - random.nextDouble() * 8) + 4, (float) (random.nextDouble() * 2 - 1), (float) random.nextDouble() * -1, 0, 1, 5));
             }
             spriteContext.removeSprite(this);
         }
@@ -365,4 +367,19 @@ public void release(Mario mario)
     facing = mario.facing;
     x += facing * 8;
 }
+
+@Override
+protected void rebind(SpriteContext context)
+{
+    super.rebind(context);
+    world = (LevelScene) context;
+}
+
+@Override
+public long stateHash()
+{
+    long hash = hashState(super.stateHash(), facing);
+    hash = hashState(hash, deadTime);
+    return hashState(hash, (onGround ? 1 : 0) | (carried ? 2 : 0) | (dead ? 4 : 0));
+}
 }
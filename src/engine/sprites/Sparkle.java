@@ -34,12 +34,12 @@ public class Sparkle extends Sprite
 public int life;
 public int xPicStart;
 
-public Sparkle(int x, int y, float xa, float ya)
+public Sparkle(SpriteContext world, int x, int y, float xa, float ya)
 {
-    this(x, y, xa, ya, (int) (Math.random() * 2), 0, 5);
+    this(world, x, y, xa, ya, world.getEffectRandom().nextInt(2), 0, 5);
 }
 
-public Sparkle(int x, int y, float xa, float ya, int xPic, int yPic, int timeSpan)
+public Sparkle(SpriteContext world, int x, int y, float xa, float ya, int xPic, int yPic, int timeSpan)
 {
     kind = KIND_SPARCLE;
     sheet = Art.particles;
@@ -55,7 +55,7 @@ public Sparkle(int x, int y, float xa, float ya, int xPic, int yPic, int timeSpa
 
     wPic = 8;
     hPic = 8;
-    life = 10 + (int) (Math.random() * timeSpan);
+    life = 10 + (int) (world.getEffectRandom().nextDouble() * timeSpan);
 }
 
 public void move()
@@ -65,7 +65,7 @@ public void move()
     else
         xPic = xPicStart + (10 - life) * 4 / 10;
 
-    if (life-- < 0) Sprite.spriteContext.removeSprite(this);
+    if (life-- < 0) spriteContext.removeSprite(this);
 
     x += xa;
     y += ya;
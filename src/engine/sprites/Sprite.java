@@ -27,11 +27,13 @@
 
 package engine.sprites;
 
+import engine.helper.FastRandom;
 import engine.level.SpriteTemplate;
 
 import java.awt.*;
+import java.util.List;
 
-public class Sprite {
+public class Sprite implements Cloneable {
 	public static final int KIND_NONE = 0;
 	public static final int KIND_MARIO = -31;
 	public static final int KIND_GOOMBA = 80;
@@ -57,9 +59,13 @@ public class Sprite {
 	
 	public static final int KIND_UNDEF = -42;
 
-	public static SpriteContext spriteContext;
+	/** Scene the sprite lives in; assigned by {@link SpriteContext#addSprite(Sprite)}. */
+	public SpriteContext spriteContext;
 	public byte kind = KIND_UNDEF;
 
+	/** Whether the sprite is alive in its scene, i.e., stored in a {@link SpriteList}; maintained by the list. */
+	boolean inScene;
+
 	protected static float GROUND_INERTIA = 0.89f;
 	protected static float AIR_INERTIA = 0.89f;
 
@@ -98,22 +104,6 @@ public class Sprite {
 
 	public SpriteTemplate spriteTemplate;
 
-	public static void setCreaturesGravity(final float creaturesGravity) {
-		Sprite.creaturesGravity = creaturesGravity;
-	}
-
-	public static void setCreaturesWind(final float wind) {
-		Sprite.windCoeff = wind;
-	}
-
-	public static void setCreaturesIce(final float ice) {
-		Sprite.iceCoeff = ice;
-	}
-
-	protected static float creaturesGravity;
-	protected static float windCoeff = 0;
-	protected static float iceCoeff = 0;
-
 	public static String getNameByKind(final int kind) {
 		switch (kind) {
 		case Sprite.KIND_MARIO:
@@ -210,7 +200,57 @@ public class Sprite {
 		return false;
 	}
 
+	public boolean isInScene() {
+		return inScene;
+	}
+
 	public boolean isDead() {
 		return spriteTemplate != null && spriteTemplate.isDead;
 	}
+
+	/**
+	 * Field-by-field copy of the sprite living in 'context' (null for copies stored in a snapshot), used by {@link engine.core.LevelScene#snapshot()};
+	 * references to other sprites still point to the originals until {@link #relink(List, List)}.
+	 */
+	public Sprite copy(final SpriteContext context) {
+		Sprite copy;
+		try {
+			copy = (Sprite) clone();
+		} catch (CloneNotSupportedException e) {
+			throw new RuntimeException("Sprite " + getClass().getName() + " cannot be copied.", e);
+		}
+		copy.inScene = false;
+		copy.rebind(context);
+		return copy;
+	}
+
+	/**
+	 * Moves the sprite to another scene; subclasses keeping their own reference to the scene must update it too.
+	 */
+	protected void rebind(final SpriteContext context) {
+		spriteContext = context;
+	}
+
+	/**
+	 * Called on the copy of from.get(i) stored at to.get(i) once all sprites are copied;
+	 * subclasses referencing other sprites point them to their copies.
+	 */
+	public void relink(final List<Sprite> from, final List<Sprite> to) {
+	}
+
+	/**
+	 * Hash of the gameplay state of the sprite, see {@link engine.core.LevelScene#getStateHash()}: kind, position and velocity;
+	 * subclasses mix in via {@link #hashState(long, long)} every other field that changes how the sprite moves on,
+	 * counters and timers included (e.g. the waiting time of a piranha plant), or equal hashes would not mean equal successors.
+	 */
+	public long stateHash() {
+		long hash = hashState(kind, Float.floatToIntBits(x));
+		hash = hashState(hash, Float.floatToIntBits(y));
+		hash = hashState(hash, Float.floatToIntBits(xa));
+		return hashState(hash, Float.floatToIntBits(ya));
+	}
+
+	public static long hashState(final long hash, final long value) {
+		return FastRandom.mix(hash * 31 + value);
+	}
 }
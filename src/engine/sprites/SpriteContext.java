@@ -27,9 +27,23 @@
 
 package engine.sprites;
 
+import engine.helper.FastRandom;
+
 public interface SpriteContext {
 
 	public void addSprite(Sprite sprite);
 	public void removeSprite(Sprite sprite);
+
+	/**
+	 * Random generator of the scene for gameplay decisions, seeded from the level seed on reset; sprites must use it
+	 * instead of {@link Math#random()} so that an episode is determined by its level and actions.
+	 */
+	public FastRandom getRandom();
+
+	/**
+	 * Like {@link #getRandom()}, but for purely visual sprites ({@link Sparkle}, {@link Particle}), so that turning
+	 * visualization on or off does not change the gameplay sequence.
+	 */
+	public FastRandom getEffectRandom();
 	
 }
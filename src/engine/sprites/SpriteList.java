@@ -0,0 +1,131 @@
+package engine.sprites;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Sprites of a scene in their update order, tuned for the way the scene changes them once per tick:
+ * newly added sprites are prepended as a batch ({@link #addAll(int, Collection)} at index 0) and removed sprites are
+ * dropped as a batch ({@link #removeAll(Collection)}).
+ * <br/><br/>
+ * Sprites are stored back to front, so prepending is an append to the array; removal only clears
+ * {@link Sprite#isInScene()} of removed sprites and then compacts the array in one pass keeping the order.
+ * {@link #contains(Object)} is answered from the flag in O(1). A sprite can be stored only once.
+ */
+public class SpriteList extends AbstractList<Sprite> implements RandomAccess {
+
+	/** Sprites in reverse order: items[size - 1] is the first one. */
+	private Sprite[] items = new Sprite[64];
+
+	private int size;
+
+	@Override
+	public Sprite get(int index) {
+		if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+		return items[size - 1 - index];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return o instanceof Sprite && ((Sprite) o).inScene;
+	}
+
+	@Override
+	public void add(int index, Sprite sprite) {
+		if (index < 0 || index > size) throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+		grow(1);
+		int at = size - index;
+		System.arraycopy(items, at, items, at + 1, size - at);
+		items[at] = sprite;
+		sprite.inScene = true;
+		++size;
+		++modCount;
+	}
+
+	@Override
+	public boolean addAll(int index, Collection<? extends Sprite> sprites) {
+		if (index != 0) return super.addAll(index, sprites);
+		if (sprites.isEmpty()) return false;
+		grow(sprites.size());
+		int from = size;
+		for (Sprite sprite : sprites) {
+			items[size++] = sprite;
+			sprite.inScene = true;
+		}
+		for (int i = from, j = size - 1; i < j; ++i, --j) {
+			Sprite swap = items[i];
+			items[i] = items[j];
+			items[j] = swap;
+		}
+		++modCount;
+		return true;
+	}
+
+	@Override
+	public Sprite remove(int index) {
+		if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+		int at = size - 1 - index;
+		Sprite sprite = items[at];
+		System.arraycopy(items, at + 1, items, at, size - at - 1);
+		items[--size] = null;
+		sprite.inScene = false;
+		++modCount;
+		return sprite;
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> sprites) {
+		if (sprites.isEmpty()) return false;
+		boolean removed = false;
+		if (sprites instanceof List && sprites instanceof RandomAccess) {
+			// by index, iterators would allocate every tick something is removed
+			List<?> list = (List<?>) sprites;
+			for (int i = 0; i < list.size(); ++i)
+				removed |= unmark(list.get(i));
+		} else {
+			for (Object o : sprites)
+				removed |= unmark(o);
+		}
+		if (!removed) return false;
+
+		int kept = 0;
+		for (int i = 0; i < size; ++i) {
+			if (items[i].inScene) items[kept++] = items[i];
+		}
+		Arrays.fill(items, kept, size, null);
+		size = kept;
+		++modCount;
+		return true;
+	}
+
+	private boolean unmark(Object o) {
+		if (!contains(o)) return false;
+		((Sprite) o).inScene = false;
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < size; ++i) {
+			items[i].inScene = false;
+			items[i] = null;
+		}
+		size = 0;
+		++modCount;
+	}
+
+	private void grow(int count) {
+		if (size + count > items.length) {
+			items = Arrays.copyOf(items, Math.max(size + count, 2 * items.length));
+		}
+	}
+
+}
@@ -1,7 +1,7 @@
 package engine.sprites;
 
 import engine.core.LevelScene;
-import options.SimulatorOptions;
+import engine.helper.FastRandom;
 
 public class WaveGoomba extends Enemy
 {
@@ -22,7 +22,7 @@ public WaveGoomba(LevelScene world, int x, int y, int dir, int mapX, int mapY)
 
 public void move()
 {
-    if (SimulatorOptions.areFrozenCreatures == true)
+    if (world.areCreaturesFrozen())
     {
         return;
     }
@@ -34,9 +34,10 @@ public void move()
         if (deadTime == 0)
         {
             deadTime = 1;
-            for (int i = 0; i < 8; i++)
+            FastRandom random = world.getEffectRandom();
+            for (int i = 0; i < 8 && world.hasCosmeticSprites(); i++)
             {
-                world.addSprite(new Sparkle((int) (x + Math.random() * 16 - 8) + 4, (int) (y - Math.random() * 8) + 4, (float) (Math.random() * 2 - 1), (float) Math.random() * -1, 0, 1, 5));
+                world.addSprite(new Sparkle(world, (int) (x + random.nextDouble() * 16 - 8) + 4, (int) (y - random.nextDouble() * 8) + 4, (float) (random.nextDouble() * 2 - 1), (float) random.nextDouble() * -1, 0, 1, 5));
             }
             spriteContext.removeSprite(this);
         }
@@ -96,10 +97,10 @@ public void move()
     ya *= winged ? 0.95 : 0.85f;
     if (onGround)
     {
-        xa *= (GROUND_INERTIA + windScale(windCoeff, facing) + iceScale(iceCoeff));
+        xa *= (GROUND_INERTIA + windScale(world.getCreaturesWind(), facing) + iceScale(world.getCreaturesIce()));
     } else
     {
-        xa *= (AIR_INERTIA + windScale(windCoeff, facing) + iceScale(iceCoeff));
+        xa *= (AIR_INERTIA + windScale(world.getCreaturesWind(), facing) + iceScale(world.getCreaturesIce()));
     }
 
     if (!onGround && !winged)
@@ -111,4 +112,18 @@ public void move()
 
     xPic = runFrame;
 }
+
+@Override
+protected void rebind(SpriteContext context)
+{
+    super.rebind(context);
+    world = (LevelScene) context;
+}
+
+@Override
+public long stateHash()
+{
+    long hash = hashState(super.stateHash(), sideWayCounter);
+    return hashState(hash, Float.floatToIntBits(lastSin));
+}
 }
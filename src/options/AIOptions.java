@@ -85,4 +85,8 @@ public final class AIOptions extends SimulationOptions {
 	public static int getEntityGeneralizationZLevel() {
 		return MarioOptions.getInstance().getInt(IntOption.AI_ENTITY_GENERALIZATION_ZLEVEL);
 	}
+	
+	public static int getTickBudget() {
+		return MarioOptions.getInstance().getInt(IntOption.AI_TICK_BUDGET);
+	}
 }
@@ -1,5 +1,6 @@
 package options;
 
+import agents.AgentOptions;
 import engine.core.Enemy;
 import engine.core.EntityGeneralizer;
 import engine.core.MarioEnvironment;
@@ -68,6 +69,15 @@ public class FastOpts {
 		return " " + IntOption.AI_RECEPTIVE_FIELD_WIDTH.getParam() + " " + width + IntOption.AI_RECEPTIVE_FIELD_HEIGHT.getParam() + " " + height;
 	}
 	
+	/**
+	 * Wall-clock milliseconds the agent may spend choosing an action each tick, see {@link AgentOptions#tickBudget}.
+	 * @param millis 0 = unlimited
+	 * @return
+	 */
+	public static String AI_TICK_BUDGET(int millis) {
+		return " " + IntOption.AI_TICK_BUDGET.getParam() + " " + millis;
+	}
+	
 	// =======================
 	// LEVEL GENERATOR OPTIONS
 	// =======================
@@ -291,6 +301,12 @@ public class FastOpts {
 	public static final String VIS_OFF = ""
 			        + " " + BoolOption.VISUALIZATION.getParam() + " off";
 	
+	/**
+	 * Create purely visual sprites even in a HEADLESS run, as if it was visualized; slower, same gameplay.
+	 */
+	public static final String VIS_COSMETIC_SPRITES = ""
+			        + " " + BoolOption.VISUALIZATION_COSMETIC_SPRITES.getParam() + " on";
+	
 	/**
 	 * Whether to visualize receptive field around Mario.
 	 * @param mode
@@ -0,0 +1,169 @@
+package options;
+
+/**
+ * Immutable snapshot of all options {@link engine.level.LevelGenerator} depends on, except the seed; together with a seed
+ * it fully determines the generated level, see {@link engine.level.LevelGenerator#generate(LevelGeneratorOptions, int)}.
+ * <br/><br/>
+ * Unlike {@link LevelOptions}, which reads {@link MarioOptions} bound to the current thread, it can be passed to other threads,
+ * compared and used as a key, see {@link #getKey()}.
+ */
+public final class LevelGeneratorOptions {
+
+	private final int type;
+	private final int length;
+	private final int height;
+	private final int difficulty;
+	private final String enemies;
+	private final int exitX;
+	private final int exitY;
+	private final boolean flat;
+	private final boolean ladders;
+	private final boolean deadEnds;
+	private final boolean cannons;
+	private final boolean hillStraight;
+	private final boolean tubes;
+	private final boolean coins;
+	private final boolean blocks;
+	private final boolean gaps;
+	private final boolean hiddenBlocks;
+
+	private final String key;
+
+	private LevelGeneratorOptions() {
+		type = LevelOptions.getLevelType();
+		length = LevelOptions.getLevelLength();
+		height = LevelOptions.getLevelHeight();
+		difficulty = LevelOptions.getDifficulty();
+		enemies = LevelOptions.getEnemies();
+		exitX = LevelOptions.getLevelExit()[0];
+		exitY = LevelOptions.getLevelExit()[1];
+		flat = LevelOptions.isFlat();
+		ladders = LevelOptions.isLadders();
+		deadEnds = LevelOptions.isDeadEnds();
+		cannons = LevelOptions.isCannons();
+		hillStraight = LevelOptions.isHillStraight();
+		tubes = LevelOptions.isTubes();
+		coins = LevelOptions.isCoins();
+		blocks = LevelOptions.isBlocks();
+		gaps = LevelOptions.isGaps();
+		hiddenBlocks = LevelOptions.isHiddenBlocks();
+
+		StringBuilder key = new StringBuilder();
+		key.append(type).append(' ').append(length).append(' ').append(height).append(' ').append(difficulty)
+		   .append(' ').append(enemies).append(' ').append(exitX).append(' ').append(exitY).append(' ');
+		boolean[] flags = { flat, ladders, deadEnds, cannons, hillStraight, tubes, coins, blocks, gaps, hiddenBlocks };
+		for (boolean flag : flags)
+			key.append(flag ? '1' : '0');
+		this.key = key.toString();
+	}
+
+	/**
+	 * Level generator options of the {@link MarioOptions} bound to the current thread.
+	 */
+	public static LevelGeneratorOptions current() {
+		return new LevelGeneratorOptions();
+	}
+
+	/**
+	 * Level generator options of 'options'.
+	 */
+	public static LevelGeneratorOptions of(MarioOptions options) {
+		MarioOptions previous = MarioOptions.bind(options);
+		try {
+			return new LevelGeneratorOptions();
+		} finally {
+			MarioOptions.bind(previous);
+		}
+	}
+
+	public int getLevelType() {
+		return type;
+	}
+
+	public int getLevelLength() {
+		return length;
+	}
+
+	public int getLevelHeight() {
+		return height;
+	}
+
+	public int getDifficulty() {
+		return difficulty;
+	}
+
+	public String getEnemies() {
+		return enemies;
+	}
+
+	public int getExitX() {
+		return exitX;
+	}
+
+	public int getExitY() {
+		return exitY;
+	}
+
+	public boolean isFlat() {
+		return flat;
+	}
+
+	public boolean isLadders() {
+		return ladders;
+	}
+
+	public boolean isDeadEnds() {
+		return deadEnds;
+	}
+
+	public boolean isCannons() {
+		return cannons;
+	}
+
+	public boolean isHillStraight() {
+		return hillStraight;
+	}
+
+	public boolean isTubes() {
+		return tubes;
+	}
+
+	public boolean isCoins() {
+		return coins;
+	}
+
+	public boolean isBlocks() {
+		return blocks;
+	}
+
+	public boolean isGaps() {
+		return gaps;
+	}
+
+	public boolean isHiddenBlocks() {
+		return hiddenBlocks;
+	}
+
+	/**
+	 * All the options in a fixed order; equal keys and seeds generate equal levels.
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof LevelGeneratorOptions && ((LevelGeneratorOptions) obj).key.equals(key);
+	}
+
+	@Override
+	public int hashCode() {
+		return key.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return "LevelGeneratorOptions[" + key + "]";
+	}
+
+}
@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Map;
 
 import engine.core.MarioSimulator;
+import engine.core.SimulationInstance;
 import engine.helper.MarioLog;
 import engine.level.LevelGenerator;
 
@@ -68,6 +69,7 @@ public class MarioOptions {
 		
 		VISUALIZATION("vis", true, "Whether to visualize the simulation."),
 		VISUALIZATION_VIEW_ALWAYS_ON_TOP("vaot", true, "Whether to maintain visualizer window always on top."),
+		VISUALIZATION_COSMETIC_SPRITES("vcs", false, "Create purely visual sprites (sparkles, particles, coin animations) even when not visualized; they never affect gameplay."),
 		;
 			
 		private String param;
@@ -138,6 +140,7 @@ public class MarioOptions {
 		AI_ENTITY_GENERALIZATION_ZLEVEL("ze", 0, "Entity generalization Z-Level."),
 		AI_MARIO_EGO_ROW("mer", 9, "Mario ego row within reception field."),
 		AI_MARIO_EGO_COLUMN("mec", 9, "Mario ego column within reception field."),
+		AI_TICK_BUDGET("tb", 0, "Wall-clock milliseconds the agent may spend choosing an action each tick, 0 = unlimited (see RolloutPool)."),
 		
 		LEVEL_GREEN_MUSHROOM_MODE("gmm", 0, "Green mushroom mode."),		
 		LEVEL_DIFFICULTY("ld", 0, "Level difficulty."),
@@ -158,6 +161,8 @@ public class MarioOptions {
         VISUALIZATION_VIEWPORT_HEIGHT("vh", 240, "Viewport height."),
         VISUALIZATION_SCALE("scale", 3, "Visualization scale (1-3x)"),
 		VISUALIZATION_RECEPTIVE_FIELD("srf", 0, "Receptive field visualization type: 0 = none, 1 = GRID, 2 = GRID+TILES, 3 = GRID+ENTITIES"),		
+		
+		SYSTEM_LEVEL_CACHE("lcm", 64, "Megabytes of generated levels kept for later runs with the same level options and seed, 0 = off."),
 		;
 			
 		private String param;
@@ -198,6 +203,7 @@ public class MarioOptions {
 		
 		SYSTEM_SAVE_LEVEL_FILE_NAME("s", "off", "Where to save the level."),
 		SYSTEM_LOAD_LEVEL_FILE_NAME("llf", "off", "Where to load the level from."),
+		SYSTEM_LEVEL_CORPUS("lcp", "off", "Level corpus file to take levels from by seed instead of generating them (see LevelCorpus)."),
 		;
 		
 		private String param;
@@ -228,6 +234,11 @@ public class MarioOptions {
 	
 	private static MarioOptions _instance;
 	
+	/**
+	 * Options bound to the current thread by a running {@link SimulationInstance}; take precedence over {@link #_instance}.
+	 */
+	private static final ThreadLocal<MarioOptions> _bound = new ThreadLocal<MarioOptions>();
+	
 	static {
 		// force enum initialization ... otherwise, respective enum constructors need not to be invoked and we would not be able to parse arguments
 		BoolOption.LEVEL_LADDERS.name();
@@ -244,8 +255,24 @@ public class MarioOptions {
 	private MarioOptions() {		
 	}
 	
+	/**
+	 * Returns options bound to the current thread (see {@link #bind(MarioOptions)}) or the global options set by {@link #reset(String...)}.
+	 */
 	public static MarioOptions getInstance() {
-		return _instance;
+		MarioOptions bound = _bound.get();
+		return bound != null ? bound : _instance;
+	}
+	
+	/**
+	 * Makes 'options' the options seen by {@link #getInstance()} within the current thread; pass NULL to fall back to global options.
+	 * @param options
+	 * @return options previously bound to the current thread (may be NULL), so the caller can restore them
+	 */
+	public static MarioOptions bind(MarioOptions options) {
+		MarioOptions previous = _bound.get();
+		if (options == null) _bound.remove();
+		else _bound.set(options);
+		return previous;
 	}
 	
 	public boolean getBool(BoolOption option) {
@@ -426,6 +453,23 @@ public class MarioOptions {
 		reset();
 	}
 	
+	/**
+	 * Creates standalone options from 'args' without touching global options or {@link SimulatorOptions}.
+	 * Used by {@link SimulationInstance} so several simulations can be configured independently.
+	 * @param args "-param1 value1 -param2 value2 ..."
+	 */
+	public static MarioOptions create(String... args) {
+		MarioOptions options = new MarioOptions();
+		MarioOptions previous = bind(options);
+		try {
+			read(args);
+			LevelOptions.reset();
+		} finally {
+			bind(previous);
+		}
+		return options;
+	}
+	
 	public static void reset() {
 		AIOptions.reset();
 		LevelOptions.reset();
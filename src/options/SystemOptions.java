@@ -1,5 +1,6 @@
 package options;
 
+import options.MarioOptions.IntOption;
 import options.MarioOptions.StringOption;
 
 /**
@@ -28,4 +29,26 @@ public class SystemOptions {
 	public static String getSaveLevelFileName() {
 		return MarioOptions.getInstance().getString(StringOption.SYSTEM_SAVE_LEVEL_FILE_NAME);
 	}
+	
+	public static boolean isLevelCorpus() {
+		String value = MarioOptions.getInstance().getString(StringOption.SYSTEM_LEVEL_CORPUS);
+		if (value.length() == 0) return false;
+		if ("off".equalsIgnoreCase(value)) return false;
+		if ("false".equalsIgnoreCase(value)) return false;
+		return true;
+	}
+	
+	/**
+	 * File of {@link engine.level.LevelCorpus} to take levels from.
+	 */
+	public static String getLevelCorpus() {
+		return MarioOptions.getInstance().getString(StringOption.SYSTEM_LEVEL_CORPUS);
+	}
+	
+	/**
+	 * Size of {@link engine.level.LevelCache} in megabytes, 0 = levels are not cached.
+	 */
+	public static int getLevelCacheSize() {
+		return MarioOptions.getInstance().getInt(IntOption.SYSTEM_LEVEL_CACHE);
+	}
 }
@@ -34,6 +34,13 @@ public class VisualizationOptions {
 		return ReceptiveFieldMode.getForCode(MarioOptions.getInstance().getInt(IntOption.VISUALIZATION_RECEPTIVE_FIELD));
 	}	
 	
+	/**
+	 * Whether purely visual sprites are created in a headless simulation too; they always are in a visualized one.
+	 */
+	public static boolean isCosmeticSprites() {
+		return MarioOptions.getInstance().getBool(BoolOption.VISUALIZATION_COSMETIC_SPRITES);
+	}
+	
 	public static boolean isViewAlwaysOnTop() {
 		return MarioOptions.getInstance().getBool(BoolOption.VISUALIZATION_VIEW_ALWAYS_ON_TOP);
 	}
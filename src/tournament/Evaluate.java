@@ -1,12 +1,34 @@
 package tournament;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+
 import options.LevelConfig;
+import tournament.run.MarioRun;
+import tournament.run.MarioRunPool;
+import tournament.run.MarioRunResult;
 
 public class Evaluate {
     public static void evaluateLevels(
             int runs, int seed, int fromLevel, int toLevel, boolean saveResults,
             Class<?> agentClass, String agentId, String resultDir, boolean verbose) {
+        evaluateLevels(runs, seed, fromLevel, toLevel, saveResults, agentClass, agentId, resultDir, verbose, 1);
+    }
+
+    /**
+     * @param threads number of games simulated in parallel; if more than 1, all (level x seed) runs share one pool,
+     *                see {@link #sweepLevels}
+     */
+    public static void evaluateLevels(
+            int runs, int seed, int fromLevel, int toLevel, boolean saveResults,
+            Class<?> agentClass, String agentId, String resultDir, boolean verbose, int threads) {
+        if (threads > 1) {
+            sweepLevels(runs, seed, fromLevel, toLevel, agentClass, agentId, resultDir, verbose, threads);
+            return;
+        }
         for (int l = fromLevel ; l <= toLevel ; ++l) {
             LevelConfig level = LevelConfig.values()[l];
             System.out.println("Evaluating in " + level.name() + "...");
@@ -17,4 +39,51 @@ public class Evaluate {
             evaluate.evaluateAgent(agentClass, agentId);		
         }
 	}
+
+    /**
+     * Submits the whole (level x seed) matrix into one {@link MarioRunPool}, longest expected runs first
+     * (by level length and time limit, harder levels first on ties), so that no thread idles while the last
+     * level is still running. Results are reported level by level in seed order, as in the sequential evaluation.
+     */
+    private static void sweepLevels(
+            int runs, int seed, int fromLevel, int toLevel,
+            Class<?> agentClass, String agentId, String resultDir, boolean verbose, int threads) {
+        int levels = toLevel - fromLevel + 1;
+        EvaluateAgent[] evaluations = new EvaluateAgent[levels];
+        long[] costs = new long[levels];
+        List<int[]> jobs = new ArrayList<int[]>();  // { level index, run index }
+
+        for (int l = 0 ; l < levels ; ++l) {
+            evaluations[l] = new EvaluateAgent(
+                seed, LevelConfig.values()[fromLevel + l], runs,
+                resultDir == null ? null : new File(resultDir), verbose, threads);
+            MarioRun[] levelRuns = evaluations[l].prepareRuns(agentClass, agentId);
+            costs[l] = levelRuns.length > 0 ? levelRuns[0].getConfig().getExpectedCost() : 0;
+            for (int i = 0 ; i < levelRuns.length ; ++i)
+                jobs.add(new int[] { l, i });
+        }
+
+        // stable sort, runs of one level keep their seed order
+        jobs.sort(Comparator.<int[]>comparingLong(job -> -costs[job[0]]).thenComparingInt(job -> -job[0]));
+
+        MarioRunPool pool = new MarioRunPool(threads);
+        try {
+            List<List<ForkJoinTask<MarioRunResult>>> tasks = new ArrayList<List<ForkJoinTask<MarioRunResult>>>();
+            for (int l = 0 ; l < levels ; ++l) {
+                List<ForkJoinTask<MarioRunResult>> levelTasks = new ArrayList<ForkJoinTask<MarioRunResult>>();
+                for (int i = 0 ; i < runs ; ++i)
+                    levelTasks.add(null);
+                tasks.add(levelTasks);
+            }
+            for (int[] job : jobs)
+                tasks.get(job[0]).set(job[1], evaluations[job[0]].submitRun(job[1], pool));
+
+            for (int l = 0 ; l < levels ; ++l) {
+                System.out.println("Evaluating in " + evaluations[l].getLevelConfig().name() + "...");
+                evaluations[l].collectResults(tasks.get(l));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
 }
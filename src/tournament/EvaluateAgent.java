@@ -4,10 +4,15 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.PrintWriter;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
 
 import agents.IAgent;
+import engine.helper.MarioLog;
 import options.LevelConfig;
 import tournament.run.MarioRun;
+import tournament.run.MarioRunPool;
 import tournament.run.MarioRunResult;
 import tournament.run.MarioRunResults;
 import tournament.run.MarioRunsGenerator;
@@ -19,28 +24,53 @@ public class EvaluateAgent {
 	private int runCount;
     private File resultDirFile;
     private boolean verbose;
+    private int threads;
 	
     public EvaluateAgent(int seed, LevelConfig levelConfig, int runCount, File resultDirFile,
                          boolean verbose) {
+        this(seed, levelConfig, runCount, resultDirFile, verbose, 1);
+    }
+
+    /**
+     * @param threads number of runs simulated in parallel; results are still reported in seed order
+     */
+    public EvaluateAgent(int seed, LevelConfig levelConfig, int runCount, File resultDirFile,
+                         boolean verbose, int threads) {
 		this.seed = seed;
 		this.levelConfig = levelConfig;
 		this.runCount = runCount;
         this.resultDirFile = resultDirFile;
         this.verbose = verbose;
+        this.threads = threads;
 	}
+
+    private static IAgent createAgent(Class<?> agentClass) {
+        try {
+            return (IAgent) agentClass.getConstructor().newInstance();
+        } catch (Exception e) { throw new RuntimeException(e); }
+    }
 	
 	public MarioRunResults evaluateAgent(Class<?> agentClass, String agentId) {
+        if (threads > 1) {
+            MarioRunPool pool = new MarioRunPool(threads);
+            try {
+                MarioRun[] runs = prepareRuns(agentClass, agentId);
+                List<ForkJoinTask<MarioRunResult>> tasks = new ArrayList<ForkJoinTask<MarioRunResult>>(runs.length);
+                for (int i = 0; i < runs.length; ++i)
+                    tasks.add(submitRun(i, pool));
+                return collectResults(tasks);
+            } finally {
+                pool.shutdown();
+            }
+        }
+
 		MarioRun[] runs = MarioRunsGenerator.generateRunList(
             seed, levelConfig.getOptionsVisualizationOff(), runCount);
 		
 		MarioRunResults results = new MarioRunResults();
 		
 		for (int i = 0; i < runs.length; ++i) {
-            IAgent agent;
-            
-            try {
-                agent = (IAgent) agentClass.getConstructor().newInstance();
-            } catch (Exception e) { throw new RuntimeException(e); }
+            IAgent agent = createAgent(agentClass);
 
             if (i == 0 && agentId == null)
                 agentId = Sanitize.idify(agent.getName());
@@ -50,15 +80,77 @@ public class EvaluateAgent {
 			results.addRunResults(result);			
 		}
 		
+        reportResults(agentId, results);
+		
+		return results;
+	}
+
+    // =====================================
+    // PARALLEL EVALUATION, see MarioRunPool
+    // =====================================
+
+    private MarioRun[] preparedRuns;
+    private Class<?> preparedAgentClass;
+    private IAgent firstAgent;
+    private String preparedAgentId;
+
+    /**
+     * Generates runs of this evaluation, to be submitted by {@link #submitRun(int, MarioRunPool)}.
+     * Every run gets its own agent; the first one is created right away as it also names the agent if 'agentId' is NULL.
+     */
+    public MarioRun[] prepareRuns(Class<?> agentClass, String agentId) {
+        preparedRuns = MarioRunsGenerator.generateRunList(
+            seed, levelConfig.getOptionsVisualizationOff(), runCount);
+        firstAgent = preparedRuns.length > 0 ? createAgent(agentClass) : null;
+        preparedAgentId = (agentId == null && firstAgent != null ? Sanitize.idify(firstAgent.getName()) : agentId);
+        preparedAgentClass = agentClass;
+        return preparedRuns;
+    }
+
+    public ForkJoinTask<MarioRunResult> submitRun(int index, MarioRunPool pool) {
+        IAgent agent = (index == 0 ? firstAgent : null);
+        Class<?> agentClass = preparedAgentClass;
+        return pool.submit(preparedRuns[index], () -> agent != null ? agent : createAgent(agentClass));
+    }
+
+    /**
+     * Waits for results of the prepared runs (indexed as returned by {@link #prepareRuns(Class, String)}),
+     * reports them in seed order and writes them out, exactly as a sequential evaluation does.
+     */
+    public MarioRunResults collectResults(List<ForkJoinTask<MarioRunResult>> tasks) {
+        MarioRunResults results = new MarioRunResults();
+        for (ForkJoinTask<MarioRunResult> task : tasks) {
+            MarioRunResult result = task.join();
+            if (verbose)
+                MarioRun.printSummary(result);
+            results.addRunResults(result);
+        }
+
+        reportResults(preparedAgentId, results);
+
+        return results;
+    }
+
+    public LevelConfig getLevelConfig() {
+        return levelConfig;
+    }
+
+    /**
+     * Prints the summary of 'results' and appends them into games.csv / averages.csv (if the result dir is set).
+     */
+    public void reportResults(String agentId, MarioRunResults results) {
 		System.out.println("  " + results.toString());
 		
 		if (resultDirFile != null)
 			outputResults(agentId, results);	
-		
-		return results;
-	}
+    }
 
 	private void outputResults(String agentId, MarioRunResults results) {		
+		if (results.getResults().isEmpty()) {
+			// e.g. every seed skipped by EvaluateShards
+			MarioLog.warn("[EvaluateAgent] no games of " + agentId + " on " + levelConfig.name() + " to write into " + resultDirFile.getPath());
+			return;
+		}
 		resultDirFile.mkdirs();
 		
 		outputAgentResults(agentId, results);
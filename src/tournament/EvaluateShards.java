@@ -0,0 +1,180 @@
+package tournament;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import agents.IAgent;
+import engine.helper.MarioLog;
+import options.LevelConfig;
+import tournament.run.MarioRun;
+import tournament.run.MarioRunResult;
+import tournament.run.MarioRunResults;
+import tournament.run.MarioRunShard;
+import tournament.run.MarioRunsGenerator;
+import tournament.utils.Sanitize;
+
+/**
+ * Coordinator evaluating an agent in several worker JVMs, so a misbehaving agent (out of memory, endless loop)
+ * takes down only its worker.
+ * <br/><br/>
+ * Seeds of every level are split into disjoint {@link MarioRunShard}s, at most 'workers' of them run at once.
+ * A worker that crashes or stops reporting games for {@link #WORKER_TIMEOUT_SECONDS} is restarted from the first
+ * seed it has not reported; a seed its worker fails on {@link #MAX_ATTEMPTS} times in a row is skipped.
+ * Results are merged in seed order and written exactly as {@link EvaluateAgent} writes them.
+ */
+public class EvaluateShards {
+
+	public static final int MAX_ATTEMPTS = 3;
+
+	public static final int WORKER_TIMEOUT_SECONDS = 300;
+
+	private final Class<?> agentClass;
+	private final int seed;
+	private final int runs;
+
+	/** Processes of running workers -> time of their last activity (ms). */
+	private final Map<Process, Long> activity = new ConcurrentHashMap<Process, Long>();
+
+	private EvaluateShards(Class<?> agentClass, int seed, int runs) {
+		this.agentClass = agentClass;
+		this.seed = seed;
+		this.runs = runs;
+	}
+
+	public static void evaluateLevels(
+			int runs, int seed, int fromLevel, int toLevel,
+			Class<?> agentClass, String agentId, String resultDir, boolean verbose, int workers) {
+		if (agentId == null) {
+			try {
+				IAgent agent = (IAgent) agentClass.getConstructor().newInstance();
+				agentId = Sanitize.idify(agent.getName());
+			} catch (Exception e) { throw new RuntimeException(e); }
+		}
+
+		EvaluateShards coordinator = new EvaluateShards(agentClass, seed, runs);
+
+		int levels = toLevel - fromLevel + 1;
+		EvaluationInfo[][] infos = new EvaluationInfo[levels][runs];
+		int shardSize = (runs + workers - 1) / workers;
+
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor();
+		watchdog.scheduleAtFixedRate(coordinator::killStaleWorkers, 1, 1, TimeUnit.SECONDS);
+		try {
+			List<Future<?>> tasks = new ArrayList<Future<?>>();
+			for (int l = 0 ; l < levels ; ++l) {
+				for (int from = 0 ; from < runs ; from += shardSize) {
+					MarioRunShard shard = new MarioRunShard(
+						LevelConfig.values()[fromLevel + l], seed + from, Math.min(shardSize, runs - from));
+					EvaluationInfo[] levelInfos = infos[l];
+					tasks.add(pool.submit(() -> coordinator.runShard(shard, levelInfos)));
+				}
+			}
+			for (Future<?> task : tasks)
+				task.get();
+		} catch (Exception e) {
+			throw new RuntimeException("Sharded evaluation failed.", e);
+		} finally {
+			watchdog.shutdownNow();
+			pool.shutdownNow();
+		}
+
+		for (int l = 0 ; l < levels ; ++l) {
+			LevelConfig level = LevelConfig.values()[fromLevel + l];
+			System.out.println("Evaluating in " + level.name() + "...");
+
+			MarioRun[] levelRuns = MarioRunsGenerator.generateRunList(seed, level.getOptionsVisualizationOff(), runs);
+			MarioRunResults results = new MarioRunResults();
+			for (int i = 0 ; i < runs ; ++i) {
+				if (infos[l][i] == null) continue;  // skipped, see MAX_ATTEMPTS
+				MarioRunResult result = new MarioRunResult(levelRuns[i].getConfig());
+				result.addResult(infos[l][i]);
+				if (verbose)
+					MarioRun.printSummary(result);
+				results.addRunResults(result);
+			}
+
+			new EvaluateAgent(seed, level, runs, resultDir == null ? null : new File(resultDir), verbose)
+				.reportResults(agentId, results);
+		}
+	}
+
+	private void runShard(MarioRunShard shard, EvaluationInfo[] infos) {
+		int next = shard.fromSeed;
+		int end = shard.fromSeed + shard.count;
+		int attempts = 0;
+
+		while (next < end) {
+			int reported = next;
+			int exitCode;
+			try {
+				Process process = startWorker(shard.level, next, end - next);
+				activity.put(process, System.currentTimeMillis());
+				try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+					String line;
+					while ((line = reader.readLine()) != null) {
+						activity.put(process, System.currentTimeMillis());
+						if (!MarioRunShard.isResult(line)) {
+							System.out.println(line);
+							continue;
+						}
+						int seed = MarioRunShard.decodeSeed(line);
+						infos[seed - this.seed] = MarioRunShard.decodeInfo(line);
+						next = seed + 1;
+					}
+				}
+				exitCode = process.waitFor();
+				activity.remove(process);
+			} catch (IOException | InterruptedException e) {
+				throw new RuntimeException("Failed to run worker for " + shard + ".", e);
+			}
+
+			if (next >= end) break;
+
+			attempts = (next > reported ? 1 : attempts + 1);
+			if (attempts >= MAX_ATTEMPTS) {
+				MarioLog.error("[EvaluateShards] " + shard.level.name() + " seed " + next + " failed " + attempts + " times, skipping it.");
+				++next;
+				attempts = 0;
+			} else {
+				MarioLog.warn("[EvaluateShards] worker for " + shard + " exited with code " + exitCode + ", restarting from seed " + next + ".");
+			}
+		}
+	}
+
+	private Process startWorker(LevelConfig level, int fromSeed, int count) throws IOException {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		ProcessBuilder builder = new ProcessBuilder(
+			java, "-Djava.awt.headless=true", "-XX:+ExitOnOutOfMemoryError",
+			"-cp", System.getProperty("java.class.path"),
+			"Mario", agentClass.getName(), "-worker",
+			"-level", Integer.toString(level.ordinal()),
+			"-seed", Integer.toString(fromSeed),
+			"-sim", Integer.toString(count));
+		builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+		return builder.start();
+	}
+
+	private void killStaleWorkers() {
+		long now = System.currentTimeMillis();
+		for (Map.Entry<Process, Long> entry : activity.entrySet()) {
+			if (now - entry.getValue() > WORKER_TIMEOUT_SECONDS * 1000L) {
+				MarioLog.warn("[EvaluateShards] worker has not reported a game for " + WORKER_TIMEOUT_SECONDS + "s, killing it.");
+				entry.getKey().destroyForcibly();
+				activity.remove(entry.getKey());
+			}
+		}
+	}
+
+}
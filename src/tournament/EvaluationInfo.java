@@ -55,6 +55,8 @@ public final class EvaluationInfo implements Cloneable {
 	public int timeLeft = MagicNumberUnDef;
 	public int timeSpent = MagicNumberUnDef;
 	public int levelLength = MagicNumberUnDef;
+	/** Number of simulation ticks the episode took. */
+	public int ticks = MagicNumberUnDef;
 
 	public EvaluationResult getResult() {
 		switch (marioStatus) {
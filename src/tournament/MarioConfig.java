@@ -3,6 +3,9 @@ package tournament;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import options.MarioOptions;
+import options.MarioOptions.IntOption;
+
 public class MarioConfig {
 	
 	private String options;
@@ -32,5 +35,14 @@ public class MarioConfig {
 	public int getSeed() {
 		return seed;
 	}
+
+	/**
+	 * Rough relative cost of simulating this config: level length (tiles) times time limit (marioseconds).
+	 * Used to schedule the longest runs first.
+	 */
+	public long getExpectedCost() {
+		MarioOptions parsed = MarioOptions.create(options);
+		return (long) parsed.getInt(IntOption.LEVEL_LENGTH) * parsed.getInt(IntOption.SIMULATION_TIME_LIMIT);
+	}
 	
 }
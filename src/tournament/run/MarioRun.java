@@ -12,17 +12,30 @@ public class MarioRun {
 	public MarioRun(MarioConfig config) {
 		this.config = config;
 	}
+
+	public MarioConfig getConfig() {
+		return config;
+	}
 	
-	public synchronized MarioRunResult run(IAgent agent, boolean verbose) {
+	/**
+	 * Simulates the run with 'agent'; runs are independent and may be executed from several threads at once.
+	 */
+	public MarioRunResult run(IAgent agent, boolean verbose) {
 		MarioRunResult result = new MarioRunResult(config);
         MarioSimulator simulator = new MarioSimulator(config.getOptions());
         EvaluationInfo info = simulator.run(agent);
 
+        result.addResult(info);
+
         if (verbose)
-            System.out.println("  seed " + config.getSeed() + ": " + info.summary());
+            printSummary(result);
 
-        result.addResult(info);
 		return result;		
 	}
 
+	public static void printSummary(MarioRunResult result) {
+		for (EvaluationInfo info : result.getResults())
+			System.out.println("  seed " + result.getConfig().getSeed() + ": " + info.summary());
+	}
+
 }
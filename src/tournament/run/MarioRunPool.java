@@ -0,0 +1,86 @@
+package tournament.run;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import agents.IAgent;
+import engine.level.LevelProducer;
+import options.MarioOptions;
+import tournament.EvaluationInfo;
+
+/**
+ * Work-stealing pool simulating {@link MarioRun}s in parallel.
+ * <br/><br/>
+ * Runs start roughly in the order they are submitted, so submit the most expensive ones first.
+ * Their levels are generated ahead of them in that order by a {@link LevelProducer}, so workers rarely wait for level generation.
+ * While the pool is alive, a progress line (episodes/s, ticks/s, ETA) is refreshed on the console every second.
+ */
+public class MarioRunPool {
+
+	private final ForkJoinPool pool;
+
+	private final ScheduledExecutorService progress;
+
+	private final LevelProducer levels;
+
+	private final long startNanos = System.nanoTime();
+
+	private final AtomicInteger submitted = new AtomicInteger();
+	private final AtomicInteger finished = new AtomicInteger();
+	private final AtomicLong ticks = new AtomicLong();
+
+	public MarioRunPool(int threads) {
+		pool = new ForkJoinPool(threads);
+		levels = new LevelProducer(Math.max(1, threads / 4), 2 * threads);
+		progress = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "MarioRunPool-progress");
+			thread.setDaemon(true);
+			return thread;
+		});
+		progress.scheduleAtFixedRate(() -> System.err.print("\r" + getProgress()), 1, 1, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * @param run run to simulate
+	 * @param agentFactory creates the agent for the run; called from the worker thread
+	 */
+	public ForkJoinTask<MarioRunResult> submit(MarioRun run, Supplier<IAgent> agentFactory) {
+		submitted.incrementAndGet();
+		levels.schedule(MarioOptions.create(run.getConfig().getOptions()));
+		return pool.submit(() -> {
+			MarioRunResult result = run.run(agentFactory.get(), false);
+			for (EvaluationInfo info : result.getResults())
+				ticks.addAndGet(info.ticks);
+			finished.incrementAndGet();
+			return result;
+		});
+	}
+
+	public String getProgress() {
+		int done = finished.get();
+		int total = submitted.get();
+		double seconds = (System.nanoTime() - startNanos) / 1e9;
+		double episodesPerSecond = done / seconds;
+		String eta = "--:--";
+		if (done > 0) {
+			long left = Math.round((total - done) / episodesPerSecond);
+			eta = String.format("%d:%02d", left / 60, left % 60);
+		}
+		return String.format("  %d/%d episodes, %.1f episodes/s, %.0f ticks/s, ETA %s   ",
+			done, total, episodesPerSecond, ticks.get() / seconds, eta);
+	}
+
+	public void shutdown() {
+		progress.shutdownNow();
+		levels.shutdown();
+		pool.shutdownNow();
+		System.err.println("\r" + getProgress());
+	}
+
+}
@@ -0,0 +1,83 @@
+package tournament.run;
+
+import agents.IAgent;
+import engine.sprites.MarioMode;
+import options.LevelConfig;
+import tournament.EvaluationInfo;
+
+/**
+ * Contiguous range of seeds of one level, evaluated by a worker JVM on behalf of {@link tournament.EvaluateShards}.
+ * <br/><br/>
+ * The worker prints one line per finished game to its standard output (see {@link #encode(int, EvaluationInfo)}),
+ * other output is passed through by the coordinator.
+ */
+public class MarioRunShard {
+
+	public static final String RESULT_PREFIX = "#shard-result;";
+
+	public final LevelConfig level;
+	public final int fromSeed;
+	public final int count;
+
+	public MarioRunShard(LevelConfig level, int fromSeed, int count) {
+		this.level = level;
+		this.fromSeed = fromSeed;
+		this.count = count;
+	}
+
+	/**
+	 * Worker side: evaluates 'count' seeds starting at 'fromSeed', a fresh agent per run, reporting each game as soon as it ends.
+	 */
+	public static void runWorker(Class<?> agentClass, LevelConfig level, int fromSeed, int count) throws Exception {
+		MarioRun[] runs = MarioRunsGenerator.generateRunList(fromSeed, level.getOptionsVisualizationOff(), count);
+		for (MarioRun run : runs) {
+			IAgent agent = (IAgent) agentClass.getConstructor().newInstance();
+			MarioRunResult result = run.run(agent, false);
+			for (EvaluationInfo info : result.getResults()) {
+				System.out.println(encode(run.getConfig().getSeed(), info));
+			}
+			System.out.flush();
+		}
+	}
+
+	public static boolean isResult(String line) {
+		return line.startsWith(RESULT_PREFIX);
+	}
+
+	public static String encode(int seed, EvaluationInfo info) {
+		return RESULT_PREFIX + seed + ";" + info.marioStatus + ";" + info.score + ";" + info.distancePassedPhys + ";"
+			+ info.flowersDevoured + ";" + info.killsTotal + ";" + (info.marioMode == null ? -1 : info.marioMode.getCode()) + ";"
+			+ info.mushroomsDevoured + ";" + info.coinsGained + ";" + info.timeLeft + ";" + info.timeSpent + ";"
+			+ info.levelLength + ";" + info.ticks;
+	}
+
+	public static int decodeSeed(String line) {
+		return Integer.parseInt(line.substring(RESULT_PREFIX.length()).split(";")[0]);
+	}
+
+	public static EvaluationInfo decodeInfo(String line) {
+		String[] parts = line.substring(RESULT_PREFIX.length()).split(";");
+		EvaluationInfo info = new EvaluationInfo();
+		info.marioStatus = Integer.parseInt(parts[1]);
+		info.score = Integer.parseInt(parts[2]);
+		info.distancePassedPhys = Integer.parseInt(parts[3]);
+		info.flowersDevoured = Integer.parseInt(parts[4]);
+		info.killsTotal = Integer.parseInt(parts[5]);
+		int mode = Integer.parseInt(parts[6]);
+		for (MarioMode marioMode : MarioMode.values()) {
+			if (marioMode.getCode() == mode) info.marioMode = marioMode;
+		}
+		info.mushroomsDevoured = Integer.parseInt(parts[7]);
+		info.coinsGained = Integer.parseInt(parts[8]);
+		info.timeLeft = Integer.parseInt(parts[9]);
+		info.timeSpent = Integer.parseInt(parts[10]);
+		info.levelLength = Integer.parseInt(parts[11]);
+		info.ticks = Integer.parseInt(parts[12]);
+		return info;
+	}
+
+	public String toString() {
+		return level.name() + " seeds " + fromSeed + "-" + (fromSeed + count - 1);
+	}
+
+}
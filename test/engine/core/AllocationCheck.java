@@ -0,0 +1,159 @@
+package engine.core;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import agents.examples.ForwardAgent;
+import engine.input.MarioInput;
+import engine.input.MarioKey;
+import engine.level.Level;
+import engine.sprites.Mario;
+import engine.sprites.Sprite;
+import options.FastOpts;
+import options.LevelConfig;
+import options.MarioOptions;
+
+/**
+ * Self-check that the observation pipeline does not allocate in steady state: runs Mario right on all {@link LevelConfig}s
+ * for N seeds with visualization off and measures the bytes the thread allocates in {@link MarioEnvironment#tick()} followed by
+ * {@link MarioEnvironment#getEntities()} and {@link MarioEnvironment#getTileField()}.
+ * <br/><br/>
+ * Only these ticks may allocate, they are just counted:
+ * <ul>
+ * <li>a game object spawns: some sprite present after the tick was not present before it;</li>
+ * <li>the level changes: a block is written in a column the episode has not written yet, which copies the column
+ *     (levels are copy-on-write, see {@link Level#fork(Level.State)});</li>
+ * <li>the episode ends;</li>
+ * <li>the entity buffers grow: more entities are in view, in total or in one cell, than ever before in the episode
+ *     and than the buffers are sized for up front.</li>
+ * </ul>
+ * Every other tick must allocate nothing. All episodes are played once unmeasured before, so that the JVM has loaded,
+ * initialized and compiled everything they run, and then measured twice: a tick fails only if it allocates both times,
+ * as episodes are deterministic while the JIT may still, rarely, deoptimize code and allocate objects it had optimized away.
+ * <br/><br/>
+ * Needs a JVM whose {@link java.lang.management.ThreadMXBean} is a {@link com.sun.management.ThreadMXBean} with allocated memory
+ * measurement (HotSpot and OpenJ9 are).
+ * <br/><br/>
+ * Usage: java engine.core.AllocationCheck [seeds]; exits with status 1 if some other tick allocates.
+ */
+public class AllocationCheck {
+
+	private static final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	/** Tick counts of the last pass: all, spawning, changing the level, ending the episode, growing entity buffers, other allocating. */
+	private static final long[] counts = new long[6];
+
+	/** Other allocating ticks of the previous pass and of the current one, as "level seed tick". */
+	private static Set<String> allocating = new HashSet<String>();
+	private static Set<String> allocatingAgain = new HashSet<String>();
+
+	public static void main(String[] args) {
+		int seeds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		if (!threads.isThreadAllocatedMemorySupported()) {
+			System.out.println("AllocationCheck: allocated memory measurement not supported by this JVM.");
+			System.exit(1);
+		}
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		for (int pass = 0; pass < 3; ++pass) {
+			Arrays.fill(counts, 0);
+			for (LevelConfig level : LevelConfig.values())
+				for (int seed = 0; seed < seeds; ++seed)
+					run(level, seed, pass > 0);
+			if (pass > 0) {
+				Set<String> previous = allocating;
+				allocating = allocatingAgain;
+				allocatingAgain = previous;
+				allocatingAgain.clear();
+			}
+		}
+
+		System.out.println("AllocationCheck: " + counts[0] + " ticks, " + counts[1] + " with spawns, " + counts[2] + " changing the level, "
+				+ counts[3] + " ending the episode, " + counts[4] + " growing entity buffers, " + counts[5] + " others allocating.");
+		if (counts[5] > 0 || counts[0] == 0)
+			System.exit(1);
+	}
+
+	private static void run(LevelConfig level, int seed, boolean measured) {
+		SimulationInstance instance = new SimulationInstance(level.getOptionsVisualizationOff() + FastOpts.L_RANDOM_SEED(seed));
+		MarioOptions previous = MarioOptions.bind(instance.getOptions());
+		try {
+			instance.reset(new ForwardAgent());
+			MarioEnvironment environment = instance.getEnvironment();
+			LevelScene scene = environment.getLevelScene();
+			long thread = Thread.currentThread().getId();
+
+			MarioInput right = new MarioInput();
+			right.press(MarioKey.RIGHT);
+			right.press(MarioKey.SPEED);
+
+			Map<Sprite, Boolean> sprites = new IdentityHashMap<Sprite, Boolean>();
+			byte[][] columns = new byte[scene.level.map.length][];
+			int maxEntities = MarioEnvironment.INITIAL_ENTITIES;
+			int[][] maxCellEntities = null;
+
+			while (!environment.isLevelFinished()) {
+				sprites.clear();
+				for (int i = 0; i < scene.sprites.size(); ++i)
+					sprites.put(scene.sprites.get(i), Boolean.TRUE);
+				System.arraycopy(scene.level.map, 0, columns, 0, columns.length);
+
+				long allocated = threads.getThreadAllocatedBytes(thread);
+				environment.tick();
+				environment.getEntities();
+				environment.getTileField();
+				allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+
+				boolean spawned = false;
+				for (int i = 0; i < scene.sprites.size() && !spawned; ++i)
+					spawned = !sprites.containsKey(scene.sprites.get(i));
+				boolean changed = false;
+				for (int x = 0; x < columns.length && !changed; ++x)
+					changed = scene.level.map[x] != columns[x];
+				boolean grown = environment.getEntities().size() > maxEntities;
+				maxEntities = Math.max(maxEntities, environment.getEntities().size());
+				List<Entity>[][] field = environment.getEntityField();
+				if (maxCellEntities == null) {
+					maxCellEntities = new int[field.length][field[0].length];
+					for (int[] row : maxCellEntities)
+						Arrays.fill(row, MarioEnvironment.INITIAL_ENTITIES_PER_CELL);
+				}
+				for (int row = 0; row < field.length; ++row) {
+					for (int col = 0; col < field[row].length; ++col) {
+						grown |= field[row][col].size() > maxCellEntities[row][col];
+						maxCellEntities[row][col] = Math.max(maxCellEntities[row][col], field[row][col].size());
+					}
+				}
+
+				if (measured) {
+					++counts[0];
+					if (spawned) {
+						++counts[1];
+					} else if (changed) {
+						++counts[2];
+					} else if (scene.getMarioStatus() != Mario.STATUS_RUNNING) {
+						++counts[3];
+					} else if (grown) {
+						++counts[4];
+					} else if (allocated > 0) {
+						String tick = level + " seed " + seed + " tick " + environment.getTick();
+						allocatingAgain.add(tick);
+						if (allocating.contains(tick)) {
+							++counts[5];
+							System.out.println(tick + ": " + allocated + " bytes allocated");
+						}
+					}
+				}
+				environment.performAction(right);
+			}
+		} finally {
+			MarioOptions.bind(previous);
+		}
+	}
+
+}
@@ -0,0 +1,376 @@
+package engine.core;
+
+import java.util.concurrent.Callable;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import engine.helper.MarioLog;
+import engine.sprites.Sprite;
+
+/**
+ * Self-check of the lookup tables of {@link TileGeneralizer} and {@link EntityGeneralizer}: for all 256 byte values and
+ * z-levels -1 ... {@link TileGeneralizer#Z_LEVELS} it compares the result, the exception and whether an error is logged
+ * with the switch chains the tables replaced, kept below verbatim.
+ * <br/><br/>
+ * Usage: java engine.core.GeneralizerCheck; exits with status 1 on any difference.
+ */
+public class GeneralizerCheck {
+
+	private static int errors;
+
+	public static void main(String[] args) {
+		Handler counter = new Handler() {
+			@Override
+			public void publish(LogRecord record) {
+				if (record.getLevel() == Level.SEVERE)
+					++errors;
+			}
+
+			@Override
+			public void flush() {
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		boolean parentHandlers = MarioLog.LOG.getUseParentHandlers();
+		MarioLog.LOG.setUseParentHandlers(false); // unknown values are logged on purpose, keep the console clean
+		MarioLog.LOG.addHandler(counter);
+		int differences = 0;
+		int checks = 0;
+		try {
+			for (int zLevel = -1; zLevel <= TileGeneralizer.Z_LEVELS; ++zLevel) {
+				for (int i = 0; i < 256; ++i) {
+					final byte el = (byte) i;
+					final int z = zLevel;
+					differences += compare("TileGeneralizer", el, z, () -> TileGeneralizer.generalize(el, z), () -> legacyTile(el, z));
+					differences += compare("EntityGeneralizer", el, z, () -> EntityGeneralizer.generalize(el, z), () -> legacyEntity(el, z));
+					checks += 2;
+				}
+			}
+		} finally {
+			MarioLog.LOG.removeHandler(counter);
+			MarioLog.LOG.setUseParentHandlers(parentHandlers);
+		}
+		System.out.println("GeneralizerCheck: " + checks + " values checked, " + differences + " differences.");
+		if (differences > 0)
+			System.exit(1);
+	}
+
+	private static int compare(String generalizer, byte el, int zLevel, Callable<Object> table, Callable<Object> legacy) {
+		String expected = outcome(legacy);
+		String actual = outcome(table);
+		if (expected.equals(actual))
+			return 0;
+		System.out.println(generalizer + ".generalize(el=" + el + ", zLevel=" + zLevel + "): " + actual + ", expected " + expected);
+		return 1;
+	}
+
+	/**
+	 * Result or exception of 'call' and the number of errors it logged.
+	 */
+	private static String outcome(Callable<Object> call) {
+		int before = errors;
+		String result;
+		try {
+			result = String.valueOf(call.call());
+		} catch (Exception e) {
+			result = e.getClass().getSimpleName() + ": " + e.getMessage();
+		}
+		return result + " (" + (errors - before) + " errors logged)";
+	}
+
+	// ========================
+	// SWITCH CHAINS REPLACED BY THE TABLES
+	// ========================
+
+	private static Tile legacyTile(byte el, int zLevel) {
+		if (el == 0)
+			return Tile.NOTHING;
+		switch (zLevel) {
+		case (0):
+			switch (el) {
+			case 16: // brick, simple, without any surprise.
+			case 17: // brick with a hidden coin
+			case 18: // brick with a hidden friendly flower
+				return Tile.BREAKABLE_BRICK;
+			case 21: // question brick, contains coin
+			case 22: // question brick, contains flower/mushroom
+			case 23: // question brick, N coins inside. prevents cheating
+				return Tile.QUESTION_BRICK; // question brick, contains something
+			case 34:
+				return Tile.COIN_ANIM;
+			case 4:
+			case -109:
+			case -110:
+			case -111:
+			case -112:
+			case -125:
+			case -126:
+			case -127:	
+			case -128:
+				return Tile.BORDER_CANNOT_PASS_THROUGH;
+			case 14:
+				return Tile.CANNON_MUZZLE;
+			case 30:
+			case 46:
+				return Tile.CANNON_TRUNK;
+			case 10:
+			case 11:
+			case 26:
+			case 27:
+				return Tile.FLOWER_POT;
+			case 1:
+				return Tile.NOTHING; // hidden block
+			case -124:
+			case -123:
+			case -122:
+			case -76:
+			case -74:
+				return Tile.BORDER_HILL;
+			case -108:
+			case -107:
+			case -106:
+				return Tile.NOTHING; // background of the hill. empty space
+			case (61):
+				return Tile.LADDER;
+			case (93):
+				return Tile.TOP_OF_LADDER;
+			case (-1):
+				return Tile.PRINCESS;
+			}
+			return Tile.SOMETHING; // everything else is "something", so it is 1
+		case (1):
+			switch (el) {
+			case 16: // brick, simple, without any surprise.
+			case 17: // brick with a hidden coin
+			case 18: // brick with a hidden flower
+			case 21: // question brick, contains coin
+			case 22: // question brick, contains flower/mushroom
+			case 23: // question brick, N coins inside. prevents cheating
+				return Tile.BRICK; // some brick
+			case 1: // hidden block
+			case (-108):
+			case (-107):
+			case (-106):
+			case (15): // Sparkle, irrelevant
+				return Tile.NOTHING;
+			case (34):
+				return Tile.COIN_ANIM;
+			case (-128):
+			case (-127):
+			case (-126):
+			case (-125):
+			case (-120):
+			case (-119):
+			case (-118):
+			case (-117):
+			case (-116):
+			case (-115):
+			case (-114):
+			case (-113):
+			case (-112):
+			case (-110):
+			case (-109):
+			case (-104):
+			case (-103):
+			case (-102):
+			case (-101):
+			case (-100):
+			case (-99):
+			case (-98):
+			case (-97):
+			case (-96):
+			case (-95):
+			case (-94):
+			case (-93):
+			case (-69):
+			case (-65):
+			case (-88):
+			case (-87):
+			case (-86):
+			case (-85):
+			case (-84):
+			case (-83):
+			case (-82):
+			case (-81):
+			case (-77):
+			case (-111):
+			case (4): // kicked hidden brick
+			case (9):
+				return Tile.BORDER_CANNOT_PASS_THROUGH; // border, cannot pass through, can stand on
+			case (-124):
+			case (-123):
+			case (-122):
+			case (-76):
+			case (-74):
+				return Tile.BORDER_HILL; // half-border, can jump through from bottom and can stand on
+			case (10):
+			case (11):
+			case (26):
+			case (27): // flower pot
+			case (14):
+			case (30):
+			case (46): // canon
+				return Tile.FLOWER_POT_OR_CANNON; // angry flower pot or cannon
+			case (61):
+				return Tile.LADDER;
+			case (93):
+				return Tile.TOP_OF_LADDER;
+			case (-1):
+				return Tile.PRINCESS;
+			}
+			MarioLog.error("GeneralizerLevelScene.generalize(el=" + el + ", zLevel=" + zLevel + "): Unknown value el = " + el + ". Possible Level tiles bug!");
+			return Tile.SOMETHING; // everything else is "something", so it is 1
+		case (2):
+			switch (el) {
+			// cancel out half-borders, that could be passed through
+			case (0):
+			case (-108):
+			case (-107):
+			case (-106):
+			case 1: // hidden block
+			case (15): // Sparcle, irrelevant
+				return Tile.NOTHING;
+			case (34): // coins
+				return Tile.COIN_ANIM;
+			case 16: // brick, simple, without any surprise.
+			case 17: // brick with a hidden coin
+			case 18: // brick with a hidden flower
+			case 21: // question brick, contains coin
+			case 22: // question brick, contains flower/mushroom
+				// here bricks are any objects cannot jump through and can stand
+				// on
+			case 4: // kicked hidden block
+			case 9:
+			case (10):
+			case (11):
+			case (26):
+			case (27): // flower pot
+			case (14):
+			case (30):
+			case (46): // canon
+				return Tile.BORDER_CANNOT_PASS_THROUGH;
+			case (-1):
+				return Tile.PRINCESS;
+			}
+			return Tile.SOMETHING; // everything else is "something", so it is 1
+		}
+		MarioLog.error("Unkown ZLevel Z" + zLevel);
+		
+		throw new RuntimeException("Invalid ZLevel[" + zLevel + "], a tile cannot be interpreted. Have you correctly set up your zLevel for the scene in your agent?");
+	}
+
+	private static EntityType legacyEntity(byte el, int zLevel) {
+		switch (zLevel) {
+		case (0):
+			switch (el) {
+			// cancel irrelevant sprite codes
+			case Sprite.KIND_COIN_ANIM:
+			case Sprite.KIND_PARTICLE:
+			case Sprite.KIND_SPARCLE:
+			case Sprite.KIND_MARIO:
+				return EntityType.NOTHING;
+			case Sprite.KIND_FIRE_FLOWER:
+				return EntityType.FIRE_FLOWER;
+			case Sprite.KIND_MUSHROOM:
+				return EntityType.MUSHROOM;
+			case Sprite.KIND_FIREBALL:
+				return EntityType.FIREBALL;
+			case Sprite.KIND_BULLET_BILL:
+				return EntityType.BULLET_BILL;
+			case Sprite.KIND_GOOMBA:
+				return EntityType.GOOMBA;
+			case Sprite.KIND_GOOMBA_WINGED:
+				return EntityType.GOOMBA_WINGED;
+			case Sprite.KIND_GREEN_KOOPA:
+				return EntityType.GREEN_KOOPA;
+			case Sprite.KIND_GREEN_KOOPA_WINGED:
+				return EntityType.GREEN_KOOPA_WINGED;
+			case Sprite.KIND_RED_KOOPA:
+				return EntityType.RED_KOOPA;
+			case Sprite.KIND_RED_KOOPA_WINGED:
+				return EntityType.RED_KOOPA_WINGED;
+			case Sprite.KIND_SHELL:
+				return EntityType.SHELL_STILL;
+			case Sprite.KIND_WAVE_GOOMBA:
+				return EntityType.WAVE_GOOMBA;
+			case Sprite.KIND_SPIKY:
+				return EntityType.SPIKY;
+			case Sprite.KIND_ENEMY_FLOWER:
+				return EntityType.ENEMY_FLOWER;				
+			case Sprite.KIND_SPIKY_WINGED:
+				return EntityType.SPIKY_WINGED;
+			case Sprite.KIND_PRINCESS:
+				return EntityType.PRINCESS;
+			}
+			MarioLog.error("EntityGeneralizer.generalize(el=" + el + ", zLevel=" + zLevel + "): Failed to interpret el = " + el + "! Returning SOMETHING!");
+			return EntityType.SOMETHING;
+		case (1):
+			switch (el) {
+			case Sprite.KIND_COIN_ANIM:
+			case Sprite.KIND_PARTICLE:
+			case Sprite.KIND_SPARCLE:
+			case Sprite.KIND_MARIO:
+				return EntityType.NOTHING;
+			case Sprite.KIND_FIRE_FLOWER:
+				return EntityType.FIRE_FLOWER;
+			case Sprite.KIND_MUSHROOM:
+				return EntityType.MUSHROOM;
+			case Sprite.KIND_FIREBALL:
+				return EntityType.FIREBALL;
+			case Sprite.KIND_BULLET_BILL:
+			case Sprite.KIND_GOOMBA:
+			case Sprite.KIND_GOOMBA_WINGED:
+			case Sprite.KIND_GREEN_KOOPA:
+			case Sprite.KIND_GREEN_KOOPA_WINGED:
+			case Sprite.KIND_RED_KOOPA:
+			case Sprite.KIND_RED_KOOPA_WINGED:
+			case Sprite.KIND_SHELL:
+			case Sprite.KIND_WAVE_GOOMBA:
+				return EntityType.DANGER;
+			case Sprite.KIND_SPIKY:
+			case Sprite.KIND_ENEMY_FLOWER:
+			case Sprite.KIND_SPIKY_WINGED:
+				return EntityType.SPIKY;
+			case Sprite.KIND_PRINCESS:
+				return EntityType.PRINCESS;
+			}
+			MarioLog.error("EntityGeneralizer.generalize(el=" + el + ", zLevel=" + zLevel + "): Failed to interpret el = " + el + "! Returning SOMETHING!");
+			return EntityType.SOMETHING;
+		case (2):
+			switch (el) {
+			case (Sprite.KIND_COIN_ANIM):
+			case (Sprite.KIND_PARTICLE):
+			case (Sprite.KIND_SPARCLE):
+			case (Sprite.KIND_FIREBALL):
+			case (Sprite.KIND_MARIO):
+			case (Sprite.KIND_FIRE_FLOWER):
+			case (Sprite.KIND_MUSHROOM):
+				return EntityType.NOTHING;
+			case (Sprite.KIND_BULLET_BILL):
+			case (Sprite.KIND_GOOMBA):
+			case (Sprite.KIND_GOOMBA_WINGED):
+			case (Sprite.KIND_GREEN_KOOPA):
+			case (Sprite.KIND_GREEN_KOOPA_WINGED):
+			case (Sprite.KIND_RED_KOOPA):
+			case (Sprite.KIND_RED_KOOPA_WINGED):
+			case (Sprite.KIND_SHELL):
+			case (Sprite.KIND_SPIKY):
+			case (Sprite.KIND_ENEMY_FLOWER):
+			case (Sprite.KIND_SPIKY_WINGED):
+			case (Sprite.KIND_WAVE_GOOMBA):
+				return EntityType.DANGER;
+			case (Sprite.KIND_PRINCESS): 
+				return EntityType.DANGER;
+			
+			}
+			MarioLog.error("EntityGeneralizer.generalize(el=" + el + ", zLevel=" + zLevel + "): Failed to interpret el = " + el + "! Returning SOMETHING!");
+			return EntityType.SOMETHING;
+		}
+		
+		throw new RuntimeException("Invalid ZLevel[" + zLevel + "], an entity cannot be interpreted. Have you correctly set up your zLevel for entities in your agent?");
+	}
+}
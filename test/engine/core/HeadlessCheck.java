@@ -0,0 +1,95 @@
+package engine.core;
+
+import agents.IAgent;
+import agents.examples.ForwardAgent;
+import agents.examples.JumpeeAgent;
+import agents.examples.ShooterAgent;
+import engine.input.MarioInput;
+import engine.sprites.Sprite;
+import options.FastOpts;
+import options.LevelConfig;
+import options.MarioOptions;
+import tournament.EvaluationInfo;
+
+/**
+ * Self-check that skipping cosmetic sprites in headless runs (see {@link LevelScene#hasCosmeticSprites()}) does not change gameplay:
+ * runs the example agents on all {@link LevelConfig}s for N seeds with cosmetic sprites on, as in a visualized run, and off,
+ * as in a headless one, and compares the whole {@link EvaluationInfo} of every episode.
+ * <br/><br/>
+ * Cosmetic sprites are switched on by {@link FastOpts#VIS_COSMETIC_SPRITES}, so the check runs headless too; they are the only
+ * difference visualization makes to the simulation, apart from interactive toggles that need a window anyway.
+ * <br/><br/>
+ * Usage: java engine.core.HeadlessCheck [seeds]; exits with status 1 on any difference.
+ */
+public class HeadlessCheck {
+
+	public static void main(String[] args) {
+		int seeds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		int episodes = 0;
+		int differences = 0;
+		long cosmeticTicks = 0;
+		for (LevelConfig level : LevelConfig.values()) {
+			for (int seed = 0; seed < seeds; ++seed) {
+				String options = level.getOptionsVisualizationOff() + FastOpts.L_RANDOM_SEED(seed);
+				IAgent[][] agents = { { new ForwardAgent(), new ForwardAgent() }, { new ShooterAgent(), new ShooterAgent() },
+				                      { new JumpeeAgent(), new JumpeeAgent() } };
+				for (IAgent[] agent : agents) {
+					long[] ticks = new long[1];
+					String visualized = describe(run(options + FastOpts.VIS_COSMETIC_SPRITES, agent[0], ticks));
+					String headless = describe(run(options, agent[1], null));
+					cosmeticTicks += ticks[0];
+					++episodes;
+					if (!visualized.equals(headless)) {
+						++differences;
+						System.out.println(agent[0].getName() + " " + level + " seed " + seed + ":\n  with cosmetic sprites    " + visualized
+								+ "\n  without cosmetic sprites " + headless);
+					}
+				}
+			}
+		}
+		System.out.println("HeadlessCheck: " + episodes + " episodes, " + cosmeticTicks + " ticks with cosmetic sprites, " + differences + " differences.");
+		if (differences > 0 || cosmeticTicks == 0)
+			System.exit(1);
+	}
+
+	/**
+	 * Runs the episode like {@link SimulationInstance#run(IAgent)}; counts ticks with some cosmetic sprite into 'cosmeticTicks[0]' if not null.
+	 */
+	private static EvaluationInfo run(String options, IAgent agent, long[] cosmeticTicks) {
+		SimulationInstance instance = new SimulationInstance(options);
+		MarioOptions previous = MarioOptions.bind(instance.getOptions());
+		try {
+			instance.reset(agent);
+			MarioEnvironment environment = instance.getEnvironment();
+			LevelScene scene = environment.getLevelScene();
+			agent.observe(environment);
+			while (!environment.isLevelFinished()) {
+				environment.tick();
+				if (cosmeticTicks != null && hasCosmeticSprite(scene))
+					++cosmeticTicks[0];
+				agent.observe(environment);
+				MarioInput actions = agent.actionSelection();
+				environment.performAction(actions);
+			}
+			return environment.getEvaluationInfo().clone();
+		} finally {
+			MarioOptions.bind(previous);
+		}
+	}
+
+	private static boolean hasCosmeticSprite(LevelScene scene) {
+		for (Sprite sprite : scene.sprites) {
+			if (sprite.kind == Sprite.KIND_SPARCLE || sprite.kind == Sprite.KIND_PARTICLE || sprite.kind == Sprite.KIND_COIN_ANIM)
+				return true;
+		}
+		return false;
+	}
+
+	private static String describe(EvaluationInfo info) {
+		return info.getResult() + " status " + info.marioStatus + " mode " + info.marioMode + " score " + info.score
+				+ " distance " + info.distancePassedPhys + "/" + info.levelLength + " kills " + info.killsTotal
+				+ " flowers " + info.flowersDevoured + " mushrooms " + info.mushroomsDevoured + " coins " + info.coinsGained
+				+ " time " + info.timeSpent + "/" + info.timeLeft + " ticks " + info.ticks;
+	}
+
+}